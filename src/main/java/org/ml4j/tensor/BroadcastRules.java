@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor;
+
+import org.jvmpy.symbolictensors.Size;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Size arithmetic for reducing broadcast tensors, shared by the backends.
+ *
+ * @author Michael Lavelle
+ */
+public final class BroadcastRules {
+
+    private BroadcastRules() {
+    }
+
+    /**
+     * @param size   The size of a tensor which is the result of broadcasting.
+     * @param target A size which broadcasts to size.
+     * @return The axes of size which must be summed over, with keepdims, to reduce a tensor of
+     * the given size to one which can be reshaped to the target size - the leading axes missing
+     * from the target, and the axes of extent one in the target.
+     */
+    public static int[] getReductionAxes(Size size, Size target) {
+        int[] dims = size.dimensions();
+        int[] targetDims = target.dimensions();
+        int leading = dims.length - targetDims.length;
+        if (leading < 0) {
+            throw new IllegalArgumentException("Cannot reduce " + size + " to " + target);
+        }
+        List<Integer> axes = new ArrayList<>();
+        for (int i = 0; i < dims.length; i++) {
+            if (i < leading) {
+                axes.add(i);
+            } else {
+                int targetDim = targetDims[i - leading];
+                if (targetDim == 1 && dims[i] != 1) {
+                    axes.add(i);
+                } else if (targetDim != dims[i]) {
+                    throw new IllegalArgumentException("Cannot reduce " + size + " to " + target);
+                }
+            }
+        }
+        return axes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @param size     The size of the tensor being summed.
+     * @param keepDims Whether the summed axes are kept with extent one, or removed.
+     * @param axes     The axes summed over, which may be negative - or all axes if none are given.
+     * @return The size of the sum.
+     */
+    public static Size getReducedSize(Size size, boolean keepDims, int... axes) {
+        int[] dims = size.dimensions();
+        boolean[] reduced = new boolean[dims.length];
+        for (int axis : axes) {
+            reduced[axis < 0 ? dims.length + axis : axis] = true;
+        }
+        List<Integer> reducedDims = new ArrayList<>();
+        for (int i = 0; i < dims.length; i++) {
+            if (axes.length == 0 || reduced[i]) {
+                if (keepDims) {
+                    reducedDims.add(1);
+                }
+            } else {
+                reducedDims.add(dims[i]);
+            }
+        }
+        return new Size(reducedDims.stream().mapToInt(Integer::intValue).toArray());
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * A forward and backward pass captured once as a flat plan of D-level TensorOperations calls, which
+ * can be replayed against new input data without rebuilding the autograd graph.
+ *
+ * <pre>
+ * CapturedGraph&lt;DJLTensorOperations&gt; step = CapturedGraph.capture(List.of(x), () -&gt; {
+ *     DJLTensor loss = x.matmul(w).relu().sum();
+ *     loss.backward();
+ *     return List.of(loss, w.grad());
+ * });
+ * List&lt;DJLTensorOperations&gt; lossAndGrad = step.replay(List.of(nextBatch));
+ * </pre>
+ *
+ * While capturing, every operation applied through DifferentiableWrappedTensorOperations on the
+ * current thread - including those performed by backward closures - is recorded with its operands.
+ * Operands which are neither inputs nor the result of a recorded operation, such as parameters,
+ * are captured by reference, so in-place updates to them between replays are seen by later replays.
+ * Outputs and inputs must however be connected to the recorded operations - capture() throws if an
+ * output was computed outside them, eg. by zero_grad() or by a wrapper creating new data on each call,
+ * or if an input is never read, as a replay would otherwise return a stale value or ignore the input.
+ *
+ * Sizes are resolved during the capture, so replays must use inputs of the captured sizes.  Native
+ * DJL gradients are computed outside the recorded operations, so they should be disabled for
+ * the captured pass, and the inputs must be tensors extending DifferentiableWrappedTensorOperations
+ * rather than cross-backend wrappers.
+ *
+ * Steps are grouped into waves of operations which do not depend on each other, such as the
+ * gradients of the two operands of a binary operation or of separate heads of a multi-output model.
+ * Replaying with a ForkJoinPool runs the operations of each wave concurrently.  In-place operations
+ * are replayed on their own, after every earlier step and before any later one.  Only captured graphs
+ * are scheduled this way - backward() on an ordinary autograd graph still runs sequentially on the
+ * calling thread.
+ *
+ * @author Michael Lavelle
+ */
+public final class CapturedGraph<D extends TensorOperations<D>> {
+
+    private static final ThreadLocal<Recorder> RECORDER = new ThreadLocal<>();
+
+    private final Object[] constants;
+    private final int[] inputSlots;
+    private final int[] outputSlots;
+    private final Step[] steps;
+    private final Step[][] waves;
+
+    private CapturedGraph(Recorder recorder, int[] inputSlots, int[] outputSlots) {
+        this.constants = recorder.constants.toArray();
+        this.inputSlots = inputSlots;
+        this.outputSlots = outputSlots;
+        this.steps = recorder.steps.toArray(new Step[0]);
+        this.waves = waves(steps, constants.length);
+    }
+
+    /**
+     * Groups the steps into waves, each step being placed in the wave after the latest of the steps
+     * producing its operands.
+     */
+    private static Step[][] waves(Step[] steps, int slotCount) {
+        int[] slotWaves = new int[slotCount];
+        Arrays.fill(slotWaves, -1);
+        List<List<Step>> waves = new ArrayList<>();
+        int barrier = -1;
+        for (Step step : steps) {
+            int wave;
+            if (step.inPlace) {
+                wave = waves.size();
+                barrier = wave;
+            } else {
+                wave = barrier + 1;
+                for (int operand : step.operands) {
+                    wave = Math.max(wave, slotWaves[operand] + 1);
+                }
+            }
+            slotWaves[step.output] = wave;
+            if (wave == waves.size()) {
+                waves.add(new ArrayList<>());
+            }
+            waves.get(wave).add(step);
+        }
+        return waves.stream().map(w -> w.toArray(new Step[0])).toArray(Step[][]::new);
+    }
+
+    /**
+     * Runs the pass once, recording the operations it performs.
+     *
+     * @param inputs The tensors whose data is replaced on each replay.
+     * @param pass   The forward and backward pass, returning the tensors whose data is returned by each replay.
+     * @throws IllegalStateException If an output was not produced by a recorded operation, or an input
+     *                               was not read by any.
+     */
+    public static <V extends Tensor<V, D>, D extends TensorOperations<D>> CapturedGraph<D> capture(List<V> inputs, Supplier<List<V>> pass) {
+        if (RECORDER.get() != null) {
+            throw new IllegalStateException("A graph is already being captured on this thread");
+        }
+        Recorder recorder = new Recorder();
+        int[] inputSlots = inputs.stream().mapToInt(input -> recorder.input(input.data().get())).toArray();
+        List<V> outputs;
+        RECORDER.set(recorder);
+        try {
+            outputs = pass.get();
+        } finally {
+            RECORDER.remove();
+        }
+        int[] outputSlots = new int[outputs.size()];
+        for (int i = 0; i < outputSlots.length; i++) {
+            outputSlots[i] = recorder.output(outputs.get(i).data().get(), i);
+        }
+        recorder.checkRead(inputSlots);
+        return new CapturedGraph<>(recorder, inputSlots, outputSlots);
+    }
+
+    /**
+     * Replays the captured operations.
+     *
+     * @param inputs Data for each of the captured inputs, of the captured sizes.
+     * @return The data of each of the captured outputs.
+     */
+    public List<D> replay(List<D> inputs) {
+        Object[] values = values(inputs);
+        for (Step step : steps) {
+            values[step.output] = step.apply(values);
+        }
+        return outputs(values);
+    }
+
+    /**
+     * Replays the captured operations, running independent operations concurrently.
+     *
+     * Waves of more than one operation run on the pool's threads, outside any DJLTensorScope or
+     * DL4JTensorScope open on the calling thread, as those scopes are thread-local.  The results of such
+     * waves are therefore allocated as if no scope were open, and are not released when the caller's
+     * scope is closed.
+     *
+     * @param inputs Data for each of the captured inputs, of the captured sizes.
+     * @param pool   The pool to run independent operations on.
+     * @return The data of each of the captured outputs.
+     */
+    public List<D> replay(List<D> inputs, ForkJoinPool pool) {
+        Object[] values = values(inputs);
+        for (Step[] wave : waves) {
+            if (wave.length == 1) {
+                values[wave[0].output] = wave[0].apply(values);
+            } else {
+                // Each step writes its own slot, and join() publishes the writes before the next wave.
+                pool.submit(() -> Arrays.stream(wave).parallel().forEach(step -> values[step.output] = step.apply(values))).join();
+            }
+        }
+        return outputs(values);
+    }
+
+    private Object[] values(List<D> inputs) {
+        if (inputs.size() != inputSlots.length) {
+            throw new IllegalArgumentException("Expected " + inputSlots.length + " inputs but got " + inputs.size());
+        }
+        Object[] values = Arrays.copyOf(constants, constants.length);
+        for (int i = 0; i < inputSlots.length; i++) {
+            values[inputSlots[i]] = inputs.get(i);
+        }
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<D> outputs(Object[] values) {
+        List<D> outputs = new ArrayList<>(outputSlots.length);
+        for (int slot : outputSlots) {
+            outputs.add((D) values[slot]);
+        }
+        return outputs;
+    }
+
+    /**
+     * @return The number of recorded operations.
+     */
+    public int getStepCount() {
+        return steps.length;
+    }
+
+    /**
+     * @return The number of waves of independent operations.
+     */
+    public int getWaveCount() {
+        return waves.length;
+    }
+
+    static boolean isCapturing() {
+        return RECORDER.get() != null;
+    }
+
+    /**
+     * @return The operation, recording each application of it if a graph is being captured on this thread.
+     */
+    static <D> UnaryOperator<D> record(UnaryOperator<D> operation) {
+        Recorder recorder = RECORDER.get();
+        if (recorder == null) {
+            return operation;
+        }
+        return d -> recorder.record(values -> operation.apply(cast(values[0])), operation.apply(d), d);
+    }
+
+    /**
+     * @return The operation, recording each application of it if a graph is being captured on this thread.
+     */
+    static <D> BinaryOperator<D> record(BinaryOperator<D> operation) {
+        Recorder recorder = RECORDER.get();
+        if (recorder == null) {
+            return operation;
+        }
+        return (f, s) -> recorder.record(values -> operation.apply(cast(values[0]), cast(values[1])), operation.apply(f, s), f, s);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <D> D cast(Object value) {
+        return (D) value;
+    }
+
+    private static final class Step {
+
+        private final Function<Object[], Object> operation;
+        private final int[] operands;
+        private final int output;
+        private final boolean inPlace;
+
+        Step(Function<Object[], Object> operation, int[] operands, int output, boolean inPlace) {
+            this.operation = operation;
+            this.operands = operands;
+            this.output = output;
+            this.inPlace = inPlace;
+        }
+
+        Object apply(Object[] values) {
+            Object[] args = new Object[operands.length];
+            for (int i = 0; i < operands.length; i++) {
+                args[i] = values[operands[i]];
+            }
+            return operation.apply(args);
+        }
+    }
+
+    private static final class Recorder {
+
+        // Slots are assigned to data objects by identity - a constant slot holds its captured value.
+        private final Map<Object, Integer> slots = new IdentityHashMap<>();
+        private final List<Object> constants = new ArrayList<>();
+        private final List<Step> steps = new ArrayList<>();
+        // Slots holding an input or the result of a recorded step, and slots read by a recorded step.
+        private final BitSet computed = new BitSet();
+        private final BitSet read = new BitSet();
+
+        int input(Object data) {
+            int slot = newSlot(null);
+            slots.put(data, slot);
+            computed.set(slot);
+            return slot;
+        }
+
+        int output(Object data, int index) {
+            Integer slot = slots.get(data);
+            if (slot == null || !computed.get(slot)) {
+                throw new IllegalStateException("Output " + index + " was not produced by a recorded operation, so would not be recomputed on replay");
+            }
+            return slot;
+        }
+
+        void checkRead(int[] inputSlots) {
+            for (int i = 0; i < inputSlots.length; i++) {
+                if (!read.get(inputSlots[i])) {
+                    throw new IllegalStateException("Input " + i + " was not read by a recorded operation, so would be ignored on replay");
+                }
+            }
+        }
+
+        int slot(Object data) {
+            Integer slot = slots.get(data);
+            if (slot == null) {
+                slot = newSlot(data);
+                slots.put(data, slot);
+            }
+            return slot;
+        }
+
+        private int newSlot(Object constant) {
+            constants.add(constant);
+            return constants.size() - 1;
+        }
+
+        <D> D record(Function<Object[], Object> operation, D result, Object... operands) {
+            int[] operandSlots = new int[operands.length];
+            boolean inPlace = false;
+            for (int i = 0; i < operands.length; i++) {
+                operandSlots[i] = slot(operands[i]);
+                read.set(operandSlots[i]);
+                inPlace |= operands[i] == result;
+            }
+            int output = newSlot(null);
+            slots.put(result, output);
+            computed.set(output);
+            steps.add(new Step(operation, operandSlots, output, inPlace));
+            return result;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.ml4j.autograd.Value;
 import org.ml4j.autograd.arithmetic.operations.DifferentiableWrappedArithmeticOperations;
 import org.ml4j.autograd.impl.AutogradValueImpl;
 import org.ml4j.autograd.impl.AutogradValueProperties;
+import org.ml4j.tensor.memory.TensorMemoryTracker;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -17,29 +18,49 @@ import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V, D> & Value<V, D, Size>, D extends TensorOperations<D>> extends AutogradValueImpl<V, D, Size> implements AutogradValue<V, D, Size>, TensorOperations<V>, org.ml4j.autograd.DataSupplier<D>, Tensor<V, D>, DifferentiableWrappedArithmeticOperations<V, D, Size> {
 
+    // Shared by every binary operation, rather than a capturing lambda per call.
+    private static final BinaryOperator<Size> BROADCAST_CONTEXT = MultiplicationRules::getBroadcast;
+
     public DifferentiableWrappedTensorOperations(Supplier<D> data, AutogradValueProperties<Size> properties) {
         super(properties, data);
+        trackValue();
     }
 
     public <X extends AutogradValue<X, Y, Z>, Y, Z> DifferentiableWrappedTensorOperations(AutogradValue<X, Y, Z> other, Function<Y, D> dataMapper, Function<Z, Size> contextMapper, Function<X, V> valueMapper, Function<V, X> valueReverseMapper, Supplier<Optional<V>> nativeGradientSupplier) {
         super(other, dataMapper, contextMapper, valueMapper, valueReverseMapper, nativeGradientSupplier);
+        trackValue();
     }
 
     public DifferentiableWrappedTensorOperations(V other) {
         super(other);
+        trackValue();
+    }
+
+    private void trackValue() {
+        if (TensorMemoryTracker.isEnabled()) {
+            Size size = properties().getContext();
+            TensorMemoryTracker.trackValue(this, properties().getRegistry(), size == null ? 0 : (long) size.numel() * Float.BYTES);
+        }
     }
 
     @Override
     public V add(V other) {
-        return applyBinaryOperator(other, D::add, (g, p) -> g, (g, p) -> g, "add:" + size() + ":" + other.context(), (f, s) -> getMappedContext(f, s));
+        if (InferenceMode.isEnabled() && !CapturedGraph.isCapturing()) {
+            return createInferenceValue(data().get().add(other.data().get()), getMappedContext(size(), other.size()));
+        }
+        return applyBinaryOperator(other, D::add, (g, p) -> g, (g, p) -> g, OperationNames.binary(OperationNames.ADD, size(), other.size()), BROADCAST_CONTEXT);
     }
 
     @Override
     public V mul(V other) {
-        return applyBinaryOperator(other, D::mul, (g, p) -> g.mul(p.getRight()), (g, p) -> g.mul(p.getLeft()), "mul:" + size() + ":" + other.context(), (f, s) -> getMappedContext(f, s));
+        if (InferenceMode.isEnabled() && !CapturedGraph.isCapturing()) {
+            return createInferenceValue(data().get().mul(other.data().get()), getMappedContext(size(), other.size()));
+        }
+        return applyBinaryOperator(other, D::mul, (g, p) -> g.mul(p.getRight()), (g, p) -> g.mul(p.getLeft()), OperationNames.binary(OperationNames.MUL, size(), other.size()), BROADCAST_CONTEXT);
     }
 
     @Override
@@ -47,30 +68,186 @@ public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V,
         return data().get().isNativeGradient();
     }
 
+    @Override
+    public int version() {
+        return data().get().version();
+    }
+
     @Override
     public V applyBinaryOperator(V other, BinaryOperator<D> forward, BiFunction<V, Pair<V, V>, V> backThis, BiFunction<V, Pair<V, V>, V> backOther, String op, BinaryOperator<Size> contextMapper) {
-        if (!size().getDimensions().equals(other.size().getDimensions())) {
+        if (!InferenceMode.isEnabled() && !size().getDimensions().equals(other.size().getDimensions())) {
+            Size broadcastSize = null;
             try {
-                Size broadcastSize = MultiplicationRules.getBroadcast(size(), other.size());
-                if (broadcastSize.getDimensions().equals(size().getDimensions()) || broadcastSize.getDimensions().equals(other.size().getDimensions())) {
-                    float scale1 = (float) broadcastSize.numel() / (float) size().numel();
-                    float scale2 = (float) broadcastSize.numel() / (float) other.size().numel();
-                    return super.applyBinaryOperator(other, forward, (g, p) -> getSub(backThis.apply(g, p), size(), scale1).mul(scale1), (g, p) -> getSub(backOther.apply(g, p), other.size(), scale2).mul(scale2), op, (f, s) -> broadcastSize);
-                } else {
-                    throw new IllegalStateException();
-                }
+                broadcastSize = MultiplicationRules.getBroadcast(size(), other.size());
             } catch (IllegalArgumentException e) {
-                // Size cannot be broadcast, perhaps it's matMul.
+                // Size cannot be broadcast - the context mapper determines the result size.
+            }
+            if (broadcastSize != null) {
+                Size resultSize = broadcastSize;
+                Size thisSize = size();
+                Size otherSize = other.size();
+                return applyBinaryOperatorWithoutBroadcast(other, forward, (g, p) -> reduceGradient(backThis.apply(g, p), thisSize), (g, p) -> reduceGradient(backOther.apply(g, p), otherSize), op, (f, s) -> resultSize);
             }
         }
+        return applyBinaryOperatorWithoutBroadcast(other, forward, backThis, backOther, op, contextMapper);
+    }
+
+    /**
+     * Applies a binary operator whose result size is given by the context mapper alone, eg. matmul, for
+     * which operands that happen to be broadcast-compatible must not take the broadcast size.
+     */
+    protected V applyBinaryOperatorWithoutBroadcast(V other, BinaryOperator<D> forward, BiFunction<V, Pair<V, V>, V> backThis, BiFunction<V, Pair<V, V>, V> backOther, String op, BinaryOperator<Size> contextMapper) {
+        forward = CapturedGraph.record(forward);
+        if (InferenceMode.isEnabled()) {
+            return createInferenceValue(forward.apply(data().get(), other.data().get()), contextMapper.apply(size(), other.size()));
+        }
         return super.applyBinaryOperator(other, forward, backThis, backOther, op, contextMapper);
     }
 
-    protected abstract V getSub(V other, Size size, float scale);
+    @Override
+    public V applyUnaryOperator(UnaryOperator<D> forward, BiFunction<V, V, V> backThis, String op, UnaryOperator<Size> contextMapper) {
+        forward = CapturedGraph.record(forward);
+        if (InferenceMode.isEnabled()) {
+            return createInferenceValue(forward.apply(data().get()), contextMapper.apply(size()));
+        }
+        return super.applyUnaryOperator(forward, backThis, op, contextMapper);
+    }
+
+    @Override
+    public V applyInlineUnaryOperator(UnaryOperator<D> forward, String op) {
+        return super.applyInlineUnaryOperator(CapturedGraph.record(forward), op);
+    }
+
+    @Override
+    public V applyInlineBinaryOperator(V other, BinaryOperator<D> forward, String op) {
+        return super.applyInlineBinaryOperator(other, CapturedGraph.record(forward), op);
+    }
+
+    /**
+     * Wraps the result of an operation performed in inference mode, without any link to the graph.
+     */
+    private V createInferenceValue(D data, Size size) {
+        return createAutogradValue(() -> data, new AutogradValueProperties<Size>().setContext(size).setRegistry(properties().getRegistry()));
+    }
+
+    /**
+     * Reduces a gradient of the broadcast size to the size of an operand, summing over the broadcast axes.
+     */
+    private V reduceGradient(V gradient, Size size) {
+        return gradient.size().getDimensions().equals(size.getDimensions()) ? gradient : gradient.sumToSize(size);
+    }
+
+    @Override
+    public V sumToSize(Size size) {
+        return applyUnaryOperator(t -> t.sumToSize(size), (g, v) -> g.expand(v.size()), OperationNames.SUM_TO_SIZE, s -> size);
+    }
+
+    @Override
+    public V expand(Size size) {
+        Size originalSize = size();
+        return applyUnaryOperator(t -> t.expand(size), (g, v) -> g.sumToSize(originalSize), OperationNames.EXPAND, s -> size);
+    }
+
+    @Override
+    public V reluBackward(V input) {
+        return applyBinaryOperator(input, D::reluBackward, (g, p) -> g.reluBackward(p.getRight()), (g, p) -> g.mul(0), OperationNames.RELU_BACKWARD, BROADCAST_CONTEXT);
+    }
+
+    @Override
+    public V sigmoidBackward(V output) {
+        return applyBinaryOperator(output, D::sigmoidBackward, (g, p) -> g.sigmoidBackward(p.getRight()), (g, p) -> backwardNotYetImplemented(OperationNames.SIGMOID_BACKWARD), OperationNames.SIGMOID_BACKWARD, BROADCAST_CONTEXT);
+    }
+
+    /**
+     * Applies an elementwise operator whose backward is computed from its output rather than its input,
+     * eg. sigmoid and exp, so that the output is reused rather than recomputed.
+     */
+    private V applyUnaryOperatorOnOutput(UnaryOperator<D> forward, BiFunction<V, V, V> backOutput, String op) {
+        SavedOutput<V> output = new SavedOutput<>(op);
+        return output.save(applyUnaryOperator(forward, (g, v) -> backOutput.apply(g, output.get()), op, UnaryOperator.identity()));
+    }
+
+    @Override
+    public ElementwiseChain<V> fuse() {
+        return new FusedElementwiseChain<>(this);
+    }
+
+    /**
+     * Applies a segment of a FusedElementwiseChain to this value as a single graph node.
+     */
+    V applyFused(FusedElementwiseChain.Segment<V, D> segment) {
+        FusedElementwiseChain.Backward<V, D> backward = segment.backward();
+        V result;
+        if (segment.isBinary()) {
+            result = applyBinaryOperator(segment.getOther(), segment::forward, backward::backThis, backward::backOther, segment.getName(), BROADCAST_CONTEXT);
+        } else {
+            result = applyUnaryOperator(segment::forward, backward::backward, segment.getName(), UnaryOperator.identity());
+        }
+        backward.setOutput(result);
+        return result;
+    }
+
+    /**
+     * Wraps data computed outside the graph, eg. intermediate values recomputed during a backward pass.
+     */
+    V detached(D data) {
+        return createInferenceValue(data, data.size());
+    }
+
+    @Override
+    public V checkpoint(UnaryOperator<V> segment) {
+        D input = data().get();
+        V output = forwardCheckpoint(segment, input);
+        Size outputSize = output.size();
+        return applyUnaryOperator(t -> t == input ? output.data().get() : forwardCheckpoint(segment, t).data().get(),
+                (g, v) -> backwardCheckpoint(segment, g, v), OperationNames.CHECKPOINT, s -> outputSize);
+    }
+
+    /**
+     * Runs a checkpointed segment without a graph, so that its intermediate activations are not retained.
+     */
+    private V forwardCheckpoint(UnaryOperator<V> segment, D input) {
+        try (InferenceMode inferenceMode = InferenceMode.enable()) {
+            return withoutNativeGraph(() -> segment.apply(createInferenceValue(input, size())));
+        }
+    }
+
+    /**
+     * Runs a computation without recording it in any gradient graph kept natively by the data. There is
+     * no such graph by default, so the computation is simply run.
+     */
+    protected V withoutNativeGraph(Supplier<V> computation) {
+        return computation.get();
+    }
+
+    /**
+     * Recomputes a checkpointed segment from a detached copy of its input, and back-propagates through it.
+     */
+    private V backwardCheckpoint(UnaryOperator<V> segment, V gradient, V input) {
+        V recomputeInput = createAutogradValue(() -> input.data().get(), new AutogradValueProperties<Size>().setContext(input.size()).setRegistry(properties().getRegistry()).setRequires_grad(true).setName(OperationNames.CHECKPOINT));
+        recomputeInput.getGradNode().setDisableNativeGradient(true);
+        segment.apply(recomputeInput).backward(gradient);
+        return recomputeInput.grad();
+    }
 
     @Override
     public V relu() {
-        return applyUnaryOperator(D::relu, (g, v) -> g.mul(v.gt(0)), "gt", s -> s);
+        return applyUnaryOperator(D::relu, (g, v) -> g.reluBackward(v), OperationNames.RELU, UnaryOperator.identity());
+    }
+
+    @Override
+    public V relu_() {
+        return applyInlineUnaryOperator(D::relu_, OperationNames.RELU_);
+    }
+
+    @Override
+    public V sigmoid_() {
+        return applyInlineUnaryOperator(D::sigmoid_, OperationNames.SIGMOID_);
+    }
+
+    @Override
+    public V neg_() {
+        return applyInlineUnaryOperator(D::neg_, OperationNames.NEG_);
     }
 
     @Override
@@ -78,32 +255,50 @@ public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V,
         if (size.numel() != numel()) {
             throw new IllegalArgumentException("Number of elements do not match");
         }
-        return applyUnaryOperator(v -> v.view(size), (g, v) -> g.view(size()), "view", s -> size);
+        return applyUnaryOperator(v -> v.view(size), (g, v) -> g.view(size()), OperationNames.VIEW, s -> size);
     }
 
     @Override
     public V norm() {
-        return applyUnaryOperator(t -> t.norm(), (g, v) -> backwardNotYetImplemented("norm"), "norm", s -> new Size());
+        // d|x|/dx = x / |x|, reusing the forward output rather than recomputing it.
+        SavedOutput<V> norm = new SavedOutput<>(OperationNames.NORM);
+        return norm.save(applyUnaryOperator(t -> t.norm(), (g, v) -> v.mul(g.div(nonZeroNorm(norm.get())).expand(v.size())), OperationNames.NORM, s -> new Size()));
+    }
+
+    /**
+     * @return The norm, or one where the norm is zero.  x is then zero too, so the gradient is the zero
+     * subgradient used by PyTorch rather than 0 * inf = NaN.
+     */
+    private V nonZeroNorm(V norm) {
+        // The norm is non-negative, so its negation is non-negative only where it is zero.
+        D negated = norm.data().get().neg();
+        D zero = negated.gte(0f);
+        negated.close();
+        return norm.add(detached(zero));
     }
 
     @Override
     public V sum(int...axes) {
-        return applyUnaryOperator(t -> t.sum(axes), (g, v) -> { if (axes.length > 0) throw new UnsupportedOperationException(); return v.mul(0).add(1).mul(g); }, "sum", s -> (axes.length == 0) ? new Size() : (axes.length == 1 && axes[0] == 0) ? new Size(1, size().dimensions()[1]) : new Size(size().dimensions()[0], 1) );
+        if (axes.length == 0) {
+            return applyUnaryOperator(t -> t.sum(), (g, v) -> g.expand(v.size()), OperationNames.SUM, s -> new Size());
+        }
+        Size keepDimsSize = BroadcastRules.getReducedSize(size(), true, axes);
+        return applyUnaryOperator(t -> t.sum(axes), (g, v) -> g.reshape(keepDimsSize).expand(v.size()), OperationNames.SUM, s -> BroadcastRules.getReducedSize(s, false, axes));
     }
 
     @Override
     public V argMax(int i) {
-        return applyUnaryOperator(t -> t.argMax(i), (g, v) -> backwardNotYetImplemented("argMax"), "sum", s -> new Size() );
+        return applyUnaryOperator(t -> t.argMax(i), (g, v) -> backwardNotYetImplemented(OperationNames.ARG_MAX), OperationNames.ARG_MAX, s -> new Size() );
     }
 
     @Override
     public V argMax() {
-        return applyUnaryOperator(t -> t.argMax(), (g, v) -> backwardNotYetImplemented("argMax"), "sum", s -> new Size() );
+        return applyUnaryOperator(t -> t.argMax(), (g, v) -> backwardNotYetImplemented(OperationNames.ARG_MAX), OperationNames.ARG_MAX, s -> new Size() );
     }
 
     @Override
     public V mean() {
-        return applyUnaryOperator(t -> t.mean(), (g, v) -> { return v.mul(0).add(1).mul(g).div(v.numel()); }, "mean", s -> new Size());
+        return applyUnaryOperator(t -> t.mean(), (g, v) -> g.div(v.numel()).expand(v.size()), OperationNames.MEAN, s -> new Size());
     }
 
     public V backwardNotYetImplemented(String op) {
@@ -111,22 +306,22 @@ public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V,
     }
 
     public V t() {
-        return applyUnaryOperator(D::t, (g, v) -> g.t(), "t", s -> s.t());
+        return applyUnaryOperator(D::t, (g, v) -> g.t(), OperationNames.T, s -> s.t());
     }
 
     @Override
     public V sigmoid() {
-        return applyUnaryOperator(D::sigmoid, (g, v) -> g.mul(sigGrad(v.getDataAsFloatArray()[0])), "sigmoid", s -> s);
+        return applyUnaryOperatorOnOutput(D::sigmoid, (g, y) -> g.sigmoidBackward(y), OperationNames.SIGMOID);
     }
 
     @Override
     public V exp() {
-        return applyUnaryOperator(D::exp, (g, v) -> backwardNotYetImplemented("exp"), "exp", s -> s);
+        return applyUnaryOperatorOnOutput(D::exp, (g, y) -> g.mul(y), OperationNames.EXP);
     }
 
     @Override
     public V log() {
-        return applyUnaryOperator(D::log, (g, v) -> backwardNotYetImplemented("log"), "log", s -> s);
+        return applyUnaryOperator(D::log, (g, v) -> g.div(v), OperationNames.LOG, UnaryOperator.identity());
     }
 
 
@@ -149,7 +344,7 @@ public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V,
             }
         }
 
-        return applyUnaryOperator(t -> t.getTensor(indexes), (g, v) -> backwardNotYetImplemented("getTensor"), "getTensor", s -> new Size(indsNonOne));
+        return applyUnaryOperator(t -> t.getTensor(indexes), (g, v) -> backwardNotYetImplemented(OperationNames.GET_TENSOR), OperationNames.GET_TENSOR, s -> new Size(indsNonOne));
     }
 
 
@@ -160,7 +355,7 @@ public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V,
         Pair<int[], int[][]> indsAll = getTensorRanges(size(), ranges);
         int[] inds = indsAll.getLeft();
         int[][] inds2 = indsAll.getRight();
-        return applyUnaryOperator(t -> t.getTensor(ranges), (g, v) -> {V a = createAutogradValue(additiveIdentity(), new AutogradValueProperties<Size>().setContext(v.context()).setRegistry(properties().getRegistry()).setChildren(g.getGradNode().prev()).setNext(g.getGradNode().next()).setRequires_grad(g.requires_grad()).setCreate_graph(g.create_graph()).setName("rangeBackward")); var b = g.getTensor(ranges);  a.putTensor(b, ranges); return a; }, "getTensor", s -> new Size(inds));
+        return applyUnaryOperator(t -> t.getTensor(ranges), (g, v) -> {V a = createAutogradValue(additiveIdentity(), new AutogradValueProperties<Size>().setContext(v.context()).setRegistry(properties().getRegistry()).setChildren(g.getGradNode().prev()).setNext(g.getGradNode().next()).setRequires_grad(g.requires_grad()).setCreate_graph(g.create_graph()).setName("rangeBackward")); var b = g.getTensor(ranges);  a.putTensor(b, ranges); return a; }, OperationNames.GET_TENSOR, s -> new Size(inds));
     }
 
     private Pair<int[], int[][]> getTensorRanges(Size size, int[]...ranges) {
@@ -203,22 +398,22 @@ public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V,
             }
 
         }
-        applyInlineUnaryOperator(t -> { t.putTensor(tensor.data().get(), ranges); return t; }, "putTensor");
+        applyInlineUnaryOperator(t -> { t.putTensor(tensor.data().get(), ranges); return t; }, OperationNames.PUT_TENSOR);
     }
 
     @Override
     public void putTensor(V tensor, int...indexes) {
-        applyInlineUnaryOperator(t -> { t.putTensor(tensor.data().get(), indexes); return t; }, "putTensor");
+        applyInlineUnaryOperator(t -> { t.putTensor(tensor.data().get(), indexes); return t; }, OperationNames.PUT_TENSOR);
     }
 
     @Override
     public V cloneTensor() {
-        return applyUnaryOperator(D::cloneTensor, (g, v) -> this.backwardNotYetImplemented("cloneTensor"), "cloneTensor", s -> s);
+        return applyUnaryOperator(D::cloneTensor, (g, v) -> this.backwardNotYetImplemented(OperationNames.CLONE_TENSOR), OperationNames.CLONE_TENSOR, UnaryOperator.identity());
     }
 
     @Override
     public V reshape(Size size) {
-        V result = applyUnaryOperator(f -> f.reshape(size), (g, v) -> g.reshape(size()), "reshape", s -> size);
+        V result = applyUnaryOperator(f -> f.reshape(size), (g, v) -> g.reshape(size()), OperationNames.RESHAPE, s -> size);
         result.properties().addLink(this.getValueNode());
         this.properties().addLink(result.getValueNode());
         return result;
@@ -226,49 +421,49 @@ public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V,
 
     @Override
     public V resize_(Size size) {
-        V result = applyInlineUnaryOperator(t -> t.resize_(size), "resize_");
+        V result = applyInlineUnaryOperator(t -> t.resize_(size), OperationNames.RESIZE_);
         this.properties().setContext(size);
         return result;
     }
 
     @Override
     public V mul_(V other) {
-        return applyInlineBinaryOperator(other, D::mul_, "mul_");
+        return applyInlineBinaryOperator(other, D::mul_, OperationNames.MUL_);
     }
 
     @Override
     public V div_(V other) {
-        return applyInlineBinaryOperator(other, D::div_, "div_");
+        return applyInlineBinaryOperator(other, D::div_, OperationNames.DIV_);
     }
 
     @Override
     public V mul_(float v) {
-        return applyInlineUnaryOperator(t -> t.mul_(v), "mul");
+        return applyInlineUnaryOperator(t -> t.mul_(v), OperationNames.MUL_);
     }
 
     @Override
     public V div_(float v) {
-        return applyInlineUnaryOperator(t -> t.div_(v), "div");
+        return applyInlineUnaryOperator(t -> t.div_(v), OperationNames.DIV_);
     }
 
     @Override
     public V sub_(float v) {
-        return applyInlineUnaryOperator(t -> t.sub_(v), "sub");
+        return applyInlineUnaryOperator(t -> t.sub_(v), OperationNames.SUB_);
     }
 
     @Override
     public V add_(float v) {
-        return applyInlineUnaryOperator(t -> t.add_(v), "add");
+        return applyInlineUnaryOperator(t -> t.add_(v), OperationNames.ADD_);
     }
 
     @Override
     public void put(int index, float v) {
-        applyInlineUnaryOperator(t -> { t.put(index, v); return t; }, "put");
+        applyInlineUnaryOperator(t -> { t.put(index, v); return t; }, OperationNames.PUT);
     }
 
     @Override
     public void put(float v, int...indexes) {
-        applyInlineUnaryOperator(t -> { t.put(v, indexes); return t; }, "put");
+        applyInlineUnaryOperator(t -> { t.put(v, indexes); return t; }, OperationNames.PUT);
     }
 
     @Override
@@ -286,11 +481,11 @@ public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V,
 
         Size[] sizes = MultiplicationRules.matmul(size(), other.size());
 
-        return this.applyBinaryOperator(other, (f, s) -> f.reshape(sizes[0]).matmul(s.reshape(sizes[1])).reshape(sizes[3]), (g, p) -> {
-            return g.reshape(sizes[2]).matmul(p.getRight().reshape(sizes[1]).t()).reshape(size());
+        return applyBinaryOperatorWithoutBroadcast(other, (f, s) -> f.reshape(sizes[0]).matmul(s.reshape(sizes[1])).reshape(sizes[3]), (g, p) -> {
+            return g.reshape(sizes[2]).matmul(p.getRight().reshape(sizes[1]), false, true).reshape(size());
         }, (g, p) -> {
-            return g.reshape(sizes[2]).t().matmul(p.getLeft().reshape(sizes[0])).t().reshape(other.size());
-        }, "matmul", (f, s) -> {
+            return p.getLeft().reshape(sizes[0]).matmul(g.reshape(sizes[2]), true, false).reshape(other.size());
+        }, OperationNames.MATMUL, (f, s) -> {
             Size result =  sizes[3];
             int[] dims = result.dimensions();
             int [] firstDims = new int[dims.length- 1];
@@ -301,6 +496,17 @@ public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V,
         });
     }
 
+    @Override
+    public V matmul(V other, boolean transposeThis, boolean transposeOther) {
+        int[] first = size().dimensions();
+        int[] second = other.size().dimensions();
+        Size result = new Size(new Size(first[transposeThis ? 1 : 0]), new Size(second[transposeOther ? 0 : 1]));
+        // With C = op(A) op(B), dA = g op(B)^T (or its transpose) and dB = op(A)^T g (or its transpose).
+        return applyBinaryOperatorWithoutBroadcast(other, (f, s) -> f.matmul(s, transposeThis, transposeOther), (g, p) -> transposeThis
+                ? p.getRight().matmul(g, transposeOther, true) : g.matmul(p.getRight(), false, !transposeOther), (g, p) -> transposeOther
+                ? g.matmul(p.getLeft(), true, transposeThis) : p.getLeft().matmul(g, !transposeThis, false), OperationNames.MATMUL, (f, s) -> result);
+    }
+
     @Override
     public Size getMappedContext(Size f, Size s) {
         return MultiplicationRules.getBroadcast(f, s);
@@ -308,7 +514,7 @@ public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V,
 
     @Override
     public V bernoulli() {
-        return applyUnaryOperator(D::bernoulli, (g, v) -> g, "gt", s -> s);
+        return applyUnaryOperator(D::bernoulli, (g, v) -> g, OperationNames.BERNOULLI, UnaryOperator.identity());
     }
 
     @Override
@@ -318,18 +524,23 @@ public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V,
 
     @Override
     public V columnSums() {
-        throw new UnsupportedOperationException("Not yet implemented");
+        return applyUnaryOperator(D::columnSums, (g, v) -> g.expand(v.size()), OperationNames.COLUMN_SUMS, s -> new Size(1, s.dimensions()[1]));
     }
 
     @Override
     public V normal_(float v1, float v2) {
 
-        return applyInlineUnaryOperator(t -> t.normal_(v1, v2), "normal");
+        return applyInlineUnaryOperator(t -> t.normal_(v1, v2), OperationNames.NORMAL);
+    }
+
+    @Override
+    public V uniform_(float from, float to) {
+        return applyInlineUnaryOperator(t -> t.uniform_(from, to), OperationNames.UNIFORM);
     }
 
     @Override
     public V fill_(float value) {
-        throw new UnsupportedOperationException("Not yet implemented");
+        return applyInlineUnaryOperator(t -> t.fill_(value), OperationNames.FILL);
     }
 
     @Override
@@ -347,29 +558,28 @@ public abstract class DifferentiableWrappedTensorOperations<V extends Tensor<V,
 
     @Override
     public V zero_() {
-        return applyInlineUnaryOperator(t -> t.zero_(), "zero");
+        return applyInlineUnaryOperator(t -> t.zero_(), OperationNames.ZERO);
+    }
+
+    @Override
+    public void zero_grad() {
+        V grad = grad();
+        if (grad != null) {
+            grad.data().get().zero_();
+        }
     }
 
     @Override
     public V view(int... dims) {
         if (dims.length == 1 && dims[0] == -1) {
-            return applyUnaryOperator(t -> t.view(-1), (g, v) -> g.view(size()), "view", s -> new Size(s.numel()));
+            return applyUnaryOperator(t -> t.view(-1), (g, v) -> g.view(size()), OperationNames.VIEW, s -> new Size(s.numel()));
         }
         throw new UnsupportedOperationException("Not yet implemented");
     }
 
     @Override
     public V rowSums() {
-        throw new UnsupportedOperationException("Not yet implemented");
-    }
-
-    public float sig(float x) {
-        return 1f / (1f + (float)Math.exp(-x));
-    }
-
-    public float sigGrad(float x) {
-        float s = sig(x);
-        return s * ( 1 - s);
+        return applyUnaryOperator(D::rowSums, (g, v) -> g.expand(v.size()), OperationNames.ROW_SUMS, s -> new Size(s.dimensions()[0], 1));
     }
 
     @Override
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor;
+
+import java.util.function.Supplier;
+
+/**
+ * A chain of elementwise operations on a tensor, recorded by Tensor.fuse() and evaluated by get().
+ *
+ * <pre>
+ * T y = x.matmul(w).fuse().add(b).relu().get();
+ * </pre>
+ *
+ * The operations have the same semantics as their Tensor counterparts, but implementations may
+ * evaluate consecutive operations together, without an intermediate tensor or graph node per operation.
+ *
+ * @author Michael Lavelle
+ */
+public interface ElementwiseChain<T> extends Supplier<T> {
+
+    ElementwiseChain<T> add(T other);
+
+    ElementwiseChain<T> sub(T other);
+
+    ElementwiseChain<T> mul(T other);
+
+    ElementwiseChain<T> div(T other);
+
+    ElementwiseChain<T> add(float value);
+
+    ElementwiseChain<T> sub(float value);
+
+    ElementwiseChain<T> mul(float value);
+
+    ElementwiseChain<T> div(float value);
+
+    ElementwiseChain<T> relu();
+
+    ElementwiseChain<T> sigmoid();
+
+    ElementwiseChain<T> neg();
+
+    /**
+     * @return The result of applying the recorded operations.
+     */
+    @Override
+    T get();
+}
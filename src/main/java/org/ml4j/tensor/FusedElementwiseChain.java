@@ -0,0 +1,316 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.jvmpy.symbolictensors.Size;
+import org.ml4j.autograd.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * ElementwiseChain for DifferentiableWrappedTensorOperations.
+ *
+ * The recorded operations are split into segments, each consisting of an optional binary operation
+ * with another tensor followed by any number of unary operations, and each segment is applied as a
+ * single graph node.  The first operation of a segment allocates its result, and the unary operations
+ * which follow are applied to that result in place.  The backward pass of a segment takes the relu and
+ * sigmoid gradients of its last operation from the segment output, and recomputes any earlier
+ * intermediate values it needs from the segment inputs with D-level operations, so that no graph nodes
+ * are created for them.
+ *
+ * @author Michael Lavelle
+ */
+public class FusedElementwiseChain<V extends Tensor<V, D> & Value<V, D, Size>, D extends TensorOperations<D>> implements ElementwiseChain<V> {
+
+    private final DifferentiableWrappedTensorOperations<V, D> input;
+    private final List<Segment<V, D>> segments = new ArrayList<>();
+
+    public FusedElementwiseChain(DifferentiableWrappedTensorOperations<V, D> input) {
+        this.input = input;
+    }
+
+    @Override
+    public ElementwiseChain<V> add(V other) {
+        return binary(new Binary<>(OperationNames.ADD, other, D::add, (g, a, b) -> g, (g, a, b) -> g));
+    }
+
+    @Override
+    public ElementwiseChain<V> sub(V other) {
+        return binary(new Binary<>(OperationNames.SUB, other, D::sub, (g, a, b) -> g, (g, a, b) -> g.neg()));
+    }
+
+    @Override
+    public ElementwiseChain<V> mul(V other) {
+        return binary(new Binary<>(OperationNames.MUL, other, D::mul, (g, a, b) -> g.mul(b), (g, a, b) -> g.mul(a)));
+    }
+
+    @Override
+    public ElementwiseChain<V> div(V other) {
+        return binary(new Binary<>(OperationNames.DIV, other, D::div, (g, a, b) -> g.div(b), (g, a, b) -> g.neg().mul(a).div(b.mul(b))));
+    }
+
+    @Override
+    public ElementwiseChain<V> add(float value) {
+        return unary(new Unary<>(OperationNames.ADD, t -> t.add(value), t -> t.add_(value), (g, y) -> g, false));
+    }
+
+    @Override
+    public ElementwiseChain<V> sub(float value) {
+        return unary(new Unary<>(OperationNames.SUB, t -> t.sub(value), t -> t.sub_(value), (g, y) -> g, false));
+    }
+
+    @Override
+    public ElementwiseChain<V> mul(float value) {
+        return unary(new Unary<>(OperationNames.MUL, t -> t.mul(value), t -> t.mul_(value), (g, y) -> g.mul(value), false));
+    }
+
+    @Override
+    public ElementwiseChain<V> div(float value) {
+        return unary(new Unary<>(OperationNames.DIV, t -> t.div(value), t -> t.div_(value), (g, y) -> g.div(value), false));
+    }
+
+    @Override
+    public ElementwiseChain<V> relu() {
+        // The relu input is positive exactly where its output is.
+        return unary(new Unary<>(OperationNames.RELU, D::relu, D::relu_, (g, y) -> g.reluBackward(y), true));
+    }
+
+    @Override
+    public ElementwiseChain<V> sigmoid() {
+        return unary(new Unary<>(OperationNames.SIGMOID, D::sigmoid, D::sigmoid_, (g, y) -> g.sigmoidBackward(y), true));
+    }
+
+    @Override
+    public ElementwiseChain<V> neg() {
+        return unary(new Unary<>(OperationNames.NEG, D::neg, D::neg_, (g, y) -> g.neg(), false));
+    }
+
+    private ElementwiseChain<V> binary(Binary<V, D> binary) {
+        segments.add(new Segment<>(binary));
+        return this;
+    }
+
+    private ElementwiseChain<V> unary(Unary<V, D> unary) {
+        if (segments.isEmpty()) {
+            segments.add(new Segment<>(null));
+        }
+        segments.get(segments.size() - 1).add(unary);
+        return this;
+    }
+
+    @Override
+    public V get() {
+        DifferentiableWrappedTensorOperations<V, D> current = input;
+        V result = input.get();
+        for (Segment<V, D> segment : segments) {
+            result = current.applyFused(segment);
+            current = wrapped(result);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V extends Tensor<V, D> & Value<V, D, Size>, D extends TensorOperations<D>> DifferentiableWrappedTensorOperations<V, D> wrapped(V value) {
+        return (DifferentiableWrappedTensorOperations<V, D>) value;
+    }
+
+    /**
+     * Backward function of a unary operation, given the gradient of its output and, if it uses it, its output y.
+     */
+    interface UnaryBackward<V> {
+
+        V apply(V g, V y);
+    }
+
+    /**
+     * Backward function of one side of a binary operation, given the gradient of its output and its inputs.
+     */
+    interface BinaryBackward<V> {
+
+        V apply(V g, V a, V b);
+    }
+
+    static class Unary<V, D> {
+
+        private final String name;
+        private final UnaryOperator<D> forward;
+        private final UnaryOperator<D> forwardInPlace;
+        private final UnaryBackward<V> backward;
+        private final boolean usesOutput;
+
+        Unary(String name, UnaryOperator<D> forward, UnaryOperator<D> forwardInPlace, UnaryBackward<V> backward, boolean usesOutput) {
+            this.name = name;
+            this.forward = forward;
+            this.forwardInPlace = forwardInPlace;
+            this.backward = backward;
+            this.usesOutput = usesOutput;
+        }
+    }
+
+    static class Binary<V, D> {
+
+        private final String name;
+        private final V other;
+        private final BinaryOperator<D> forward;
+        private final BinaryBackward<V> backThis;
+        private final BinaryBackward<V> backOther;
+
+        Binary(String name, V other, BinaryOperator<D> forward, BinaryBackward<V> backThis, BinaryBackward<V> backOther) {
+            this.name = name;
+            this.other = other;
+            this.forward = forward;
+            this.backThis = backThis;
+            this.backOther = backOther;
+        }
+    }
+
+    /**
+     * An optional binary operation followed by unary operations, applied as a single graph node.
+     */
+    static class Segment<V extends Tensor<V, D> & Value<V, D, Size>, D extends TensorOperations<D>> {
+
+        private final Binary<V, D> binary;
+        private final List<Unary<V, D>> unaries = new ArrayList<>();
+        private String name;
+
+        Segment(Binary<V, D> binary) {
+            this.binary = binary;
+        }
+
+        private void add(Unary<V, D> unary) {
+            unaries.add(unary);
+            name = null;
+        }
+
+        boolean isBinary() {
+            return binary != null;
+        }
+
+        V getOther() {
+            return binary.other;
+        }
+
+        String getName() {
+            if (name == null) {
+                List<String> names = new ArrayList<>();
+                if (binary != null) {
+                    names.add(binary.name);
+                }
+                unaries.forEach(u -> names.add(u.name));
+                name = OperationNames.FUSED + ":" + String.join(",", names);
+            }
+            return name;
+        }
+
+        D forward(D input) {
+            return forwardInPlace(unaries.get(0).forward.apply(input), 1);
+        }
+
+        D forward(D first, D second) {
+            return forwardInPlace(binary.forward.apply(first, second), 0);
+        }
+
+        private D forwardInPlace(D result, int from) {
+            for (int i = from; i < unaries.size(); i++) {
+                result = unaries.get(i).forwardInPlace.apply(result);
+            }
+            return result;
+        }
+
+        /**
+         * @return The backward functions for one application of this segment.
+         */
+        Backward<V, D> backward() {
+            return new Backward<>(this);
+        }
+
+        /**
+         * Propagates the gradient back through the unary operations.  The output of the last operation is
+         * the segment output y, which is only taken if its backward function uses it, and the outputs of
+         * earlier operations are recomputed from the segment input only if their backward functions use them.
+         * Recomputed values are closed once the gradient has been computed, including the segment input if
+         * it was recomputed too.
+         */
+        private V chainGradient(V g, Supplier<V> y, Supplier<D> segmentInput, boolean recomputedInput) {
+            int last = unaries.size() - 1;
+            List<D> outputs = new ArrayList<>();
+            D input = null;
+            if (unaries.subList(0, Math.max(last, 0)).stream().anyMatch(u -> u.usesOutput)) {
+                input = segmentInput.get();
+                D z = input;
+                for (int i = 0; i < last; i++) {
+                    z = unaries.get(i).forward.apply(z);
+                    outputs.add(z);
+                }
+            }
+            for (int i = last; i >= 0; i--) {
+                Unary<V, D> unary = unaries.get(i);
+                V output = !unary.usesOutput ? null : i == last ? y.get() : wrapped(g).detached(outputs.get(i));
+                g = unary.backward.apply(g, output);
+            }
+            if (input != null) {
+                // The gradient is computed before the values it was computed from are closed.
+                g.data().get();
+                outputs.forEach(D::close);
+                if (recomputedInput) {
+                    input.close();
+                }
+            }
+            return g;
+        }
+    }
+
+    /**
+     * The backward functions of one application of a segment, which hold its output for as long as
+     * its graph node.  Each side of a binary segment propagates the gradient through the unary operations
+     * itself, so that nothing is retained between the two - only one side runs if only one operand
+     * requires grad.
+     */
+    static class Backward<V extends Tensor<V, D> & Value<V, D, Size>, D extends TensorOperations<D>> {
+
+        private final Segment<V, D> segment;
+        private final SavedOutput<V> output;
+
+        private Backward(Segment<V, D> segment) {
+            this.segment = segment;
+            this.output = new SavedOutput<>(segment.getName());
+        }
+
+        void setOutput(V output) {
+            this.output.save(output);
+        }
+
+        V backward(V g, V input) {
+            return segment.chainGradient(g, output, () -> input.data().get(), false);
+        }
+
+        V backThis(V g, Pair<V, V> p) {
+            return segment.binary.backThis.apply(binaryGradient(g, p), p.getLeft(), p.getRight());
+        }
+
+        V backOther(V g, Pair<V, V> p) {
+            return segment.binary.backOther.apply(binaryGradient(g, p), p.getLeft(), p.getRight());
+        }
+
+        private V binaryGradient(V g, Pair<V, V> p) {
+            return segment.chainGradient(g, output, () -> segment.binary.forward.apply(p.getLeft().data().get(), p.getRight().data().get()), true);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor;
+
+/**
+ * A try-with-resources scope in which tensor operations build no autograd graph.
+ *
+ * While inference mode is enabled on the current thread, operations on tensors extending
+ * DifferentiableWrappedTensorOperations are dispatched straight to the wrapped TensorOperations,
+ * and their results do not require grad - no backward closures, graph nodes or op names are created.
+ *
+ * <pre>
+ * try (InferenceMode inferenceMode = InferenceMode.enable()) {
+ *     DJLTensor output = model.forward(input);
+ * }
+ * </pre>
+ *
+ * Inference mode may be nested, and must be closed on the thread that enabled it.
+ *
+ * @author Michael Lavelle
+ */
+public final class InferenceMode implements AutoCloseable {
+
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private boolean closed;
+
+    private InferenceMode() {
+    }
+
+    /**
+     * Enables inference mode on the current thread until the returned scope is closed.
+     */
+    public static InferenceMode enable() {
+        DEPTH.get()[0]++;
+        return new InferenceMode();
+    }
+
+    /**
+     * @return Whether inference mode is enabled on the current thread.
+     */
+    public static boolean isEnabled() {
+        return DEPTH.get()[0] > 0;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            DEPTH.get()[0]--;
+        }
+    }
+}
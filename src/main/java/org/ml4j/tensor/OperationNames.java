@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor;
+
+import org.jvmpy.symbolictensors.Size;
+
+/**
+ * Names of the graph nodes created by DifferentiableWrappedTensorOperations.
+ *
+ * Names are constants, so that no string is built per operation.  Operand sizes are appended to
+ * the names of binary operations only when tracing is enabled with -Dml4j.tensor.trace=true.
+ *
+ * @author Michael Lavelle
+ */
+final class OperationNames {
+
+    static final String TRACE_PROPERTY = "ml4j.tensor.trace";
+
+    static final boolean TRACE = Boolean.getBoolean(TRACE_PROPERTY);
+
+    static final String ADD = "add";
+    static final String SUB = "sub";
+    static final String MUL = "mul";
+    static final String DIV = "div";
+    static final String ADD_ = "add_";
+    static final String SUB_ = "sub_";
+    static final String MUL_ = "mul_";
+    static final String DIV_ = "div_";
+    static final String MATMUL = "matmul";
+    static final String RELU = "relu";
+    static final String RELU_ = "relu_";
+    static final String RELU_BACKWARD = "reluBackward";
+    static final String SIGMOID = "sigmoid";
+    static final String SIGMOID_ = "sigmoid_";
+    static final String SIGMOID_BACKWARD = "sigmoidBackward";
+    static final String NEG = "neg";
+    static final String NEG_ = "neg_";
+    static final String EXP = "exp";
+    static final String LOG = "log";
+    static final String BERNOULLI = "bernoulli";
+    static final String SUM = "sum";
+    static final String SUM_TO_SIZE = "sumToSize";
+    static final String EXPAND = "expand";
+    static final String MEAN = "mean";
+    static final String NORM = "norm";
+    static final String COLUMN_SUMS = "columnSums";
+    static final String ROW_SUMS = "rowSums";
+    static final String ARG_MAX = "argMax";
+    static final String T = "t";
+    static final String VIEW = "view";
+    static final String RESHAPE = "reshape";
+    static final String RESIZE_ = "resize_";
+    static final String GET_TENSOR = "getTensor";
+    static final String PUT_TENSOR = "putTensor";
+    static final String PUT = "put";
+    static final String CLONE_TENSOR = "cloneTensor";
+    static final String CHECKPOINT = "checkpoint";
+    static final String FUSED = "fused";
+    static final String NORMAL = "normal";
+    static final String UNIFORM = "uniform";
+    static final String ZERO = "zero";
+    static final String FILL = "fill";
+
+    private OperationNames() {
+    }
+
+    /**
+     * @return The name of a binary operation, with its operand sizes if tracing is enabled.
+     */
+    static String binary(String name, Size first, Size second) {
+        return TRACE ? name + ":" + first + ":" + second : name;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.tensor;
+
+import java.util.function.Supplier;
+
+/**
+ * The forward output of an operation whose backward reuses it, eg. sigmoid and norm, together with
+ * its version when it was saved.
+ *
+ * An in-place modification of the output before the backward pass, such as relu_() or an optimizer
+ * step, would otherwise silently corrupt the gradient, so get() throws if the version has changed.
+ *
+ * @author Michael Lavelle
+ */
+final class SavedOutput<T extends TensorOperations<T>> implements Supplier<T> {
+
+    private final String op;
+    private T output;
+    private int version;
+
+    SavedOutput(String op) {
+        this.op = op;
+    }
+
+    /**
+     * Saves the output at its current version.
+     */
+    T save(T output) {
+        this.output = output;
+        this.version = output.version();
+        return output;
+    }
+
+    /**
+     * @return The saved output.
+     * @throws IllegalStateException If the output has been modified in place since it was saved.
+     */
+    @Override
+    public T get() {
+        if (output.version() != version) {
+            throw new IllegalStateException("The output of " + op + " is needed to compute its gradient, but has been modified in place since the forward pass");
+        }
+        return output;
+    }
+}
@@ -21,6 +21,8 @@ import org.ml4j.tensor.djl.DJLTensor;
 import org.ml4j.tensor.dl4j.DL4JTensor;
 import org.ml4j.tensor.ml4j.ML4JTensor;
 
+import java.util.function.UnaryOperator;
+
 /**
  * Interface of our Tensor - extending from both AutogradValue and TensorOperations.
  *
@@ -32,4 +34,26 @@ public interface Tensor<T extends Tensor<T, D>, D> extends AutogradValue<T, D, S
     DL4JTensor toDL4JTensor();
     ML4JTensor toML4JTensor(DirectedComponentsContext context);
     DJLTensor toDJLTensor();
+
+    /**
+     * @return A chain of elementwise operations starting from this tensor, which may be evaluated
+     * without an intermediate tensor per operation.
+     */
+    ElementwiseChain<T> fuse();
+
+    /**
+     * Applies a segment of operations to this tensor without retaining the segment's intermediate
+     * activations, which are recomputed from this tensor when gradients are propagated back through it.
+     *
+     * @param segment The operations to apply - they must not have side effects, as they are applied again
+     *                during backward.
+     * @return The output of the segment.
+     */
+    T checkpoint(UnaryOperator<T> segment);
+
+    /**
+     * Zeroes the gradient of this tensor in place, rather than discarding it.  Whether the next
+     * backward pass accumulates into the same buffer is up to the gradient node.
+     */
+    void zero_grad();
 }
@@ -65,7 +65,6 @@ public class TensorMatrixFactory<T extends Tensor<T, D>, D> implements MatrixFac
 
     @Override
     public Matrix createMatrixFromRowsByRowsArray(int rows, int columns, float[] floats) {
-        System.out.println("Creating:" + rows + ":" + columns + ":" + floats.length);
         return create(tensorFactory.create(floats, new Size(rows, columns)));
     }
 
@@ -25,6 +25,38 @@ public interface TensorOperations<T> extends Supplier<T>, TensorDataContainer, A
 
     T sum(int... dims);
 
+    /**
+     * Sums this tensor over the axes along which a tensor of the given size was broadcast to produce it.
+     *
+     * @param size A size which broadcasts to the size of this tensor.
+     * @return A tensor of the given size.
+     */
+    T sumToSize(Size size);
+
+    /**
+     * Broadcasts this tensor to the given size - the reverse of sumToSize.
+     *
+     * @param size A size to which the size of this tensor broadcasts.
+     * @return A tensor of the given size.
+     */
+    T expand(Size size);
+
+    /**
+     * Treating this tensor as the gradient of a relu output, computes the gradient of its input.
+     *
+     * @param input The relu input, of the same size as this tensor.
+     * @return This tensor where the input is positive, and zero elsewhere.
+     */
+    T reluBackward(T input);
+
+    /**
+     * Treating this tensor as the gradient of a sigmoid output, computes the gradient of its input.
+     *
+     * @param output The sigmoid output, of the same size as this tensor.
+     * @return This tensor multiplied by output * (1 - output).
+     */
+    T sigmoidBackward(T output);
+
     float get(int index);
 
     float get(int...indexes);
@@ -69,6 +101,16 @@ public interface TensorOperations<T> extends Supplier<T>, TensorDataContainer, A
 
     T matmul(T other);
 
+    /**
+     * Matrix multiplication of 2-D tensors, either of which may be transposed as part of the
+     * multiplication rather than by a separate transpose.
+     *
+     * @param other          The right-hand operand.
+     * @param transposeThis  Whether to multiply by the transpose of this tensor.
+     * @param transposeOther Whether to multiply by the transpose of the other tensor.
+     */
+    T matmul(T other, boolean transposeThis, boolean transposeOther);
+
     T t();
 
     Size size();
@@ -81,6 +123,8 @@ public interface TensorOperations<T> extends Supplier<T>, TensorDataContainer, A
 
     T normal_(float v1, float v2);
 
+    T uniform_(float from, float to);
+
     T fill_(float value);
 
     T view(Size size);
@@ -93,10 +137,16 @@ public interface TensorOperations<T> extends Supplier<T>, TensorDataContainer, A
 
     T relu();
 
+    T relu_();
+
     T bernoulli();
 
     T sigmoid();
 
+    T sigmoid_();
+
+    T neg_();
+
     T exp();
 
     T log();
@@ -104,4 +154,9 @@ public interface TensorOperations<T> extends Supplier<T>, TensorDataContainer, A
     void close();
     
     boolean isNativeGradient();
+
+    /**
+     * @return A counter incremented by every in-place modification of this tensor.
+     */
+    int version();
 }
\ No newline at end of file
@@ -8,12 +8,18 @@ import org.ml4j.autograd.CachingDataSupplierImpl;
 import org.ml4j.autograd.impl.AutogradValueProperties;
 
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
-public abstract class TensorWrapperImpl<S extends Tensor<S, D>, T extends Tensor<T, E>, D, E> implements AutogradValue<T, E, Size>, TensorOperations<T>, org.ml4j.autograd.DataSupplier<E>, Tensor<T, E> {
+public abstract class TensorWrapperImpl<S extends Tensor<S, D>, T extends Tensor<T, E>, D extends TensorOperations<D>, E extends TensorOperations<E>> implements AutogradValue<T, E, Size>, TensorOperations<T>, org.ml4j.autograd.DataSupplier<E>, Tensor<T, E> {
 
     protected S t;
     protected T cachedGrad;
 
+    private D convertedFrom;
+    private int convertedFromVersion;
+    private E converted;
+    private int convertedVersion;
+
     public TensorWrapperImpl(S t) {
 
         this.t = t;
@@ -90,16 +96,18 @@ public abstract class TensorWrapperImpl<S extends Tensor<S, D>, T extends Tensor
         }
     }
 
+    @Override
+    public void zero_grad() {
+        t.zero_grad();
+    }
+
     @Override
     public void backward() {
-        System.out.println("CCC:" + t.grad());
         t.backward();
     }
 
     @Override
     public void backward(BackwardConfig backwardConfig) {
-        System.out.println("DDD:" + t.grad());
-
         t.backward(backwardConfig);
     }
 
@@ -193,7 +201,23 @@ public abstract class TensorWrapperImpl<S extends Tensor<S, D>, T extends Tensor
 
     @Override
     public CachingDataSupplier<E> data() {
-        return new CachingDataSupplierImpl<>(() -> createData(t.data().get()));
+        return new CachingDataSupplierImpl<>(this::getConvertedData);
+    }
+
+    /**
+     * Converts the wrapped data at most once per version - the conversion is only repeated if the
+     * wrapped tensor's data is replaced, or if either side has since been modified in place.
+     */
+    private synchronized E getConvertedData() {
+        D source = t.data().get();
+        if (converted == null || convertedFrom != source || convertedFromVersion != source.version()
+                || convertedVersion != converted.version()) {
+            converted = createData(source);
+            convertedFrom = source;
+            convertedFromVersion = source.version();
+            convertedVersion = converted.version();
+        }
+        return converted;
     }
 
     protected abstract E createData(D data);
@@ -244,6 +268,31 @@ public abstract class TensorWrapperImpl<S extends Tensor<S, D>, T extends Tensor
         return create(t.sum(dims));
     }
 
+    @Override
+    public T sumToSize(Size size) {
+        return create(t.sumToSize(size));
+    }
+
+    @Override
+    public T matmul(T other, boolean transposeThis, boolean transposeOther) {
+        return create(t.matmul(extract(other), transposeThis, transposeOther));
+    }
+
+    @Override
+    public T expand(Size size) {
+        return create(t.expand(size));
+    }
+
+    @Override
+    public T reluBackward(T input) {
+        return create(t.reluBackward(extract(input)));
+    }
+
+    @Override
+    public T sigmoidBackward(T output) {
+        return create(t.sigmoidBackward(extract(output)));
+    }
+
     @Override
     public float get(int index) {
         return t.get(index);
@@ -307,7 +356,7 @@ public abstract class TensorWrapperImpl<S extends Tensor<S, D>, T extends Tensor
 
     @Override
     public T mul_(T other) {
-        t.div_(extract(other));
+        t.mul_(extract(other));
         return get();
     }
 
@@ -397,6 +446,12 @@ public abstract class TensorWrapperImpl<S extends Tensor<S, D>, T extends Tensor
         return get();
     }
 
+    @Override
+    public T uniform_(float from, float to) {
+        t.uniform_(from, to);
+        return get();
+    }
+
     @Override
     public T fill_(float value) {
         t.fill_(value);
@@ -429,6 +484,24 @@ public abstract class TensorWrapperImpl<S extends Tensor<S, D>, T extends Tensor
         return create(t.relu());
     }
 
+    @Override
+    public T relu_() {
+        t.relu_();
+        return get();
+    }
+
+    @Override
+    public T sigmoid_() {
+        t.sigmoid_();
+        return get();
+    }
+
+    @Override
+    public T neg_() {
+        t.neg_();
+        return get();
+    }
+
     @Override
     public T bernoulli() {
         return create(t.bernoulli());
@@ -441,7 +514,7 @@ public abstract class TensorWrapperImpl<S extends Tensor<S, D>, T extends Tensor
 
     @Override
     public T exp() {
-        return create(t.log());
+        return create(t.exp());
     }
 
     @Override
@@ -459,4 +532,101 @@ public abstract class TensorWrapperImpl<S extends Tensor<S, D>, T extends Tensor
         return t.isNativeGradient();
     }
 
+    @Override
+    public int version() {
+        return t.version();
+    }
+
+    @Override
+    public ElementwiseChain<T> fuse() {
+        return new WrappedElementwiseChain(t.fuse());
+    }
+
+    @Override
+    public T checkpoint(UnaryOperator<T> segment) {
+        return create(t.checkpoint(s -> extract(segment.apply(create(s)))));
+    }
+
+    /**
+     * Records the chain against the wrapped tensor, so that it is fused by the wrapped implementation.
+     */
+    private class WrappedElementwiseChain implements ElementwiseChain<T> {
+
+        private final ElementwiseChain<S> chain;
+
+        WrappedElementwiseChain(ElementwiseChain<S> chain) {
+            this.chain = chain;
+        }
+
+        @Override
+        public ElementwiseChain<T> add(T other) {
+            chain.add(extract(other));
+            return this;
+        }
+
+        @Override
+        public ElementwiseChain<T> sub(T other) {
+            chain.sub(extract(other));
+            return this;
+        }
+
+        @Override
+        public ElementwiseChain<T> mul(T other) {
+            chain.mul(extract(other));
+            return this;
+        }
+
+        @Override
+        public ElementwiseChain<T> div(T other) {
+            chain.div(extract(other));
+            return this;
+        }
+
+        @Override
+        public ElementwiseChain<T> add(float value) {
+            chain.add(value);
+            return this;
+        }
+
+        @Override
+        public ElementwiseChain<T> sub(float value) {
+            chain.sub(value);
+            return this;
+        }
+
+        @Override
+        public ElementwiseChain<T> mul(float value) {
+            chain.mul(value);
+            return this;
+        }
+
+        @Override
+        public ElementwiseChain<T> div(float value) {
+            chain.div(value);
+            return this;
+        }
+
+        @Override
+        public ElementwiseChain<T> relu() {
+            chain.relu();
+            return this;
+        }
+
+        @Override
+        public ElementwiseChain<T> sigmoid() {
+            chain.sigmoid();
+            return this;
+        }
+
+        @Override
+        public ElementwiseChain<T> neg() {
+            chain.neg();
+            return this;
+        }
+
+        @Override
+        public T get() {
+            return create(chain.get());
+        }
+    }
 }
@@ -65,7 +65,7 @@ public class DJLFromDL4JTensorWrapperImpl extends TensorWrapperImpl<DL4JTensor,
 
     @Override
     public PtNDArray getNDArray() {
-        return (PtNDArray) DJLTensorFactory.getManager().create(getDataAsFloatArray(), DJLTensorFactory.getShape(size()));
+        return (PtNDArray) data().get().getNDArray();
     }
 
     @Override
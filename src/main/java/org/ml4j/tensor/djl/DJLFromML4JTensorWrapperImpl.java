@@ -67,7 +67,7 @@ public class DJLFromML4JTensorWrapperImpl extends TensorWrapperImpl<ML4JTensor,
 
     @Override
     public PtNDArray getNDArray() {
-        return (PtNDArray) DJLTensorFactory.getManager().create(getDataAsFloatArray(), DJLTensorFactory.getShape(size()));
+        return (PtNDArray) data().get().getNDArray();
     }
 
     @Override
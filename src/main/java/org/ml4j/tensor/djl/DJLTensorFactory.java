@@ -1,5 +1,6 @@
 package org.ml4j.tensor.djl;
 
+import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDManager;
 import ai.djl.ndarray.types.Shape;
 import ai.djl.pytorch.engine.PtEngine;
@@ -20,8 +21,21 @@ public class DJLTensorFactory implements TensorFactory<DJLTensor, DJLTensorOpera
         this.registry = AutogradValueRegistry.create(DJLTensorFactory.class.getName());
     }
 
+    /**
+     * @return The manager of the innermost DJLTensorScope open on the current thread, or the base
+     * manager if no scope is open.
+     */
     public static NDManager getManager() {
-        return manager;
+        NDManager scopeManager = DJLTensorScope.getCurrentManager();
+        return scopeManager == null ? manager : scopeManager;
+    }
+
+    /**
+     * @return Whether the array belongs to the base manager, which is never closed, rather than to a
+     * DJLTensorScope or another manager which may free it while another backend still views it.
+     */
+    public static boolean isOwnedByBaseManager(NDArray array) {
+        return array.getManager() == manager;
     }
 
     @Override
@@ -31,7 +45,7 @@ public class DJLTensorFactory implements TensorFactory<DJLTensor, DJLTensorOpera
 
     @Override
     public DJLTensor create(float[] data, Size size) {
-        return new DJLTensorImpl(() -> new DJLTensorOperationsImpl(manager.create(data, getShape(size))), new AutogradValueProperties<Size>().setRegistry(registry).setContext(size));
+        return new DJLTensorImpl(() -> DJLTensorOperationsImpl.allocated(getManager().create(data, getShape(size))), new AutogradValueProperties<Size>().setRegistry(registry).setContext(size));
     }
 
     public static Shape getShape(Size size) {
@@ -44,36 +58,36 @@ public class DJLTensorFactory implements TensorFactory<DJLTensor, DJLTensorOpera
 
     @Override
     public DJLTensor create(float[] data) {
-        return new DJLTensorImpl(() -> new DJLTensorOperationsImpl(manager.create(data, new Shape())), new AutogradValueProperties<Size>().setRegistry(registry).setContext(new Size()));
+        return new DJLTensorImpl(() -> DJLTensorOperationsImpl.allocated(getManager().create(data, new Shape())), new AutogradValueProperties<Size>().setRegistry(registry).setContext(new Size()));
     }
 
     @Override
     public DJLTensor create() {
-        return new DJLTensorImpl(() -> new DJLTensorOperationsImpl(manager.create(new Shape())), new AutogradValueProperties<Size>().setRegistry(registry).setContext(new Size()));
+        return new DJLTensorImpl(() -> DJLTensorOperationsImpl.allocated(getManager().create(new Shape())), new AutogradValueProperties<Size>().setRegistry(registry).setContext(new Size()));
     }
 
     @Override
     public DJLTensor ones(Size size) {
-        return new DJLTensorImpl(() -> new DJLTensorOperationsImpl(manager.ones(getShape(size))), new AutogradValueProperties<Size>().setRegistry(registry).setContext(size));
+        return new DJLTensorImpl(() -> DJLTensorOperationsImpl.allocated(getManager().ones(getShape(size))), new AutogradValueProperties<Size>().setRegistry(registry).setContext(size));
     }
 
     @Override
     public DJLTensor zeros(Size size) {
-        return new DJLTensorImpl(() -> new DJLTensorOperationsImpl(manager.zeros(getShape(size))), new AutogradValueProperties<Size>().setRegistry(registry).setContext(size));
+        return new DJLTensorImpl(() -> DJLTensorOperationsImpl.allocated(getManager().zeros(getShape(size))), new AutogradValueProperties<Size>().setRegistry(registry).setContext(size));
     }
 
     @Override
     public DJLTensor randn(Size size) {
-        return new DJLTensorImpl(() -> new DJLTensorOperationsImpl(manager.randomNormal(getShape(size))), new AutogradValueProperties<Size>().setRegistry(registry).setContext(size));
+        return new DJLTensorImpl(() -> DJLTensorOperationsImpl.allocated(getManager().randomNormal(getShape(size))), new AutogradValueProperties<Size>().setRegistry(registry).setContext(size));
     }
 
     @Override
     public DJLTensor rand(Size size) {
-        return new DJLTensorImpl(() -> new DJLTensorOperationsImpl(manager.randomUniform(0, 1, getShape(size))), new AutogradValueProperties<Size>().setRegistry(registry).setContext(size));
+        return new DJLTensorImpl(() -> DJLTensorOperationsImpl.allocated(getManager().randomUniform(0, 1, getShape(size))), new AutogradValueProperties<Size>().setRegistry(registry).setContext(size));
     }
 
     @Override
     public DJLTensor empty(Size size) {
-        return new DJLTensorImpl(() -> new DJLTensorOperationsImpl(manager.create(getShape(size))), new AutogradValueProperties<Size>().setRegistry(registry).setContext(size));
+        return new DJLTensorImpl(() -> DJLTensorOperationsImpl.allocated(getManager().create(getShape(size))), new AutogradValueProperties<Size>().setRegistry(registry).setContext(size));
     }
 }
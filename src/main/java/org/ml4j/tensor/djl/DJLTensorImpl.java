@@ -45,7 +45,6 @@ import java.util.function.Supplier;
  */
 public class DJLTensorImpl extends DifferentiableWrappedTensorOperations<DJLTensor, DJLTensorOperations> implements AutogradValue<DJLTensor, DJLTensorOperations, Size>, TensorOperations<DJLTensor>, org.ml4j.autograd.DataSupplier<DJLTensorOperations>, Tensor<DJLTensor, DJLTensorOperations>, DJLTensor {
 
-
 	public DJLTensorImpl(NDArray ndArray, boolean requires_grad, AutogradValueRegistry registry) {
 		super(() -> new DJLTensorOperationsImpl(ndArray), new AutogradValueProperties<Size>().setContext(getSize(ndArray.getShape())).setRegistry(registry).setRequires_grad(requires_grad));
 	}
@@ -76,7 +75,7 @@ public class DJLTensorImpl extends DifferentiableWrappedTensorOperations<DJLTens
 	}
 
 	public DJLTensorImpl(float data, AutogradValueProperties<Size> properties) {
-		super(() -> new DJLTensorOperationsImpl(createArray(data, properties.getContext(), properties.isRequires_grad())), properties);
+		super(() -> DJLTensorOperationsImpl.allocated(createArray(data, properties.getContext(), properties.isRequires_grad())), properties);
 	}
 
 	public PtNDArray getNDArray() {
@@ -109,20 +108,32 @@ public class DJLTensorImpl extends DifferentiableWrappedTensorOperations<DJLTens
 		super.backward(g, config);
 	}
 
+	/**
+	 * Suspends PyTorch's gradient recording, so that a checkpointed segment reading arrays with native
+	 * gradients neither keeps its intermediates alive in the native graph, nor is back-propagated natively
+	 * again alongside its recomputation.
+	 */
+	@Override
+	protected DJLTensor withoutNativeGraph(Supplier<DJLTensor> computation) {
+		try (NativeGradMode nativeGradMode = NativeGradMode.disable()) {
+			return computation.get();
+		}
+	}
+
 	@Override
 	public DJLTensor matmul(DJLTensor other) {
 
 		Size origSize = this.size();
 		Size[] sizes = MultiplicationRules.matmul(size(), other.size());
-		return this.applyBinaryOperator(other, (f, s) -> f.matmul(s), (g, p) -> {
+		return applyBinaryOperatorWithoutBroadcast(other, (f, s) -> f.matmul(s), (g, p) -> {
 			Size origGSize = sizes[3];
-			DJLTensor r = g.reshape(sizes[2]).matmul(p.getRight().t());
+			DJLTensor r = g.reshape(sizes[2]).matmul(p.getRight(), false, true);
 			//resize_(origGSize);
 			return r.resize_(size());
 		}, (g, p) -> {
 			Size origGSize = sizes[3];
 			Size origLeftSize = origSize;
-			DJLTensor r = g.reshape(sizes[2]).t().matmul(p.getLeft().reshape(sizes[0])).t().reshape(other.size());
+			DJLTensor r = p.getLeft().reshape(sizes[0]).matmul(g.reshape(sizes[2]), true, false).reshape(other.size());
 			//g.resize_(origGSize);
 			//p.getLeft().resize_(origLeftSize);
 			return r;
@@ -148,7 +159,7 @@ public class DJLTensorImpl extends DifferentiableWrappedTensorOperations<DJLTens
 	}
 
 	private static NDArray createArray(float data, Size size, boolean requires_grad) {
-		NDArray arr = DJLTensorFactory.getManager().ones(getShape(size)).mul(data);
+		NDArray arr = DJLTensorFactory.getManager().full(getShape(size), data);
 		if (requires_grad) {
 			arr.setRequiresGradient(true);
 		}
@@ -157,12 +168,21 @@ public class DJLTensorImpl extends DifferentiableWrappedTensorOperations<DJLTens
 
 	protected Supplier<Optional<DJLTensor>> createNativeGradient() {
 		if (this.requires_grad()) {
-			return () -> {NDArray grad = data().get().getNDArray().getGradient(); return grad.sum().getFloat() == 0 ? Optional.empty() : Optional.of(new DJLTensorImpl(() -> {DJLTensorOperationsImpl data = new DJLTensorOperationsImpl(grad); data.setNativeGradient(true); return data;}, new AutogradValueProperties<Size>().setContext(size()).setRegistry(properties().getRegistry()).setName("nativeGrad"))); };
+			return () -> {NDArray grad = getDefinedNativeGradient(); if (grad == null) return Optional.empty(); return Optional.of(new DJLTensorImpl(() -> {DJLTensorOperationsImpl data = new DJLTensorOperationsImpl(grad); data.setNativeGradient(true); return data;}, new AutogradValueProperties<Size>().setContext(size()).setRegistry(properties().getRegistry()).setName("nativeGrad"))); };
 		} else {
 			return () -> Optional.empty();
 		}
 	}
 
+	/**
+	 * @return The gradient PyTorch has defined for this tensor, or null if no native backward pass has
+	 * reached it - unlike NDArray.getGradient(), which returns zeros in that case, so that an all-zero
+	 * gradient is still distinguished from an absent one.
+	 */
+	private NDArray getDefinedNativeGradient() {
+		return JniUtils.getGradient(getNDArray());
+	}
+
 	@Override
 	public String toString() {
 		return name();
@@ -183,77 +203,6 @@ public class DJLTensorImpl extends DifferentiableWrappedTensorOperations<DJLTens
 		name_(properties.getName());
 	}
 
-	@Override
-	protected DJLTensor getSub(DJLTensor other, Size size, float scale) {
-		if (scale == 1) {
-			return other;
-		} else {
-
-			if (other.size().dimensions()[0] == 2 && other.size().dimensions()[1] == 128 && other.size().dimensions()[2] == 65
-			&& size.dimensions()[0] == 1 && size.dimensions()[1] == 65) {
-				return other.getTensor(new int[] {0, 1}, new int[] {0,1}, new int[]{ 0, 65}).resize_(new Size(1, 65));
-			}
-
-			boolean scalar = size.dimensions().length == 0;
-			int div = scale == 2 ? 2 : (int) Math.sqrt(scale);
-			int[] dims = other.size().dimensions();
-			int prod = 1;
-			int[] newDims = new int[dims.length];
-			int[][] ranges = new int[newDims.length][2];
-
-			for (int i = 0; i < newDims.length; i++) {
-				newDims[i] = dims[i] /div;
-				prod = prod * newDims[i];
-				if (scale == 2) {
-					div = 1;
-				}
-				ranges[i][0] = 0;
-				ranges[i][1] = newDims[i];
-			}
-
-			/*
-			float[] oldData = other.getDataAsFloatArray();
-			System.out.println("PROD:" + prod + ":" + oldData.length);
-			float[] data = new float[prod];
-			int ind = 0;
-			int newInd = 0;
-			for (int i = 0; i < dims.length; i++) {
-				for (int j = 0; j < dims[i]; j++) {
-					if (j < newDims[i]) {
-						if (newInd < data.length && ind < oldData.length) {
-							data[newInd] = oldData[ind];
-							System.out.println("Setting:" + newInd + ":" + ind);
-						}
-						newInd++;
-					}
-					ind++;
-				}
-			}
-
-			 */
-
-			Size s = scalar ? new Size() : new Size(newDims);
-		if (size.dimensions().length != s.dimensions().length) {
-			throw new IllegalStateException();
-		} else {
-			for (int i = 0; i < size.dimensions().length; i++) {
-				if (s.dimensions()[i] != size.dimensions()[i]) {
-					throw new IllegalStateException();
-				}
-			}
-		}
-
-			if (scalar) {
-				return other.getTensor(newDims);
-			} else {
-				return other.getTensor(ranges);
-			}
-			//NDArray matrix = DJLTensorFactory.getManager().create(data, getShape(s));
-			//DJLTensorOperations ops = new DJLTensorOperationsImpl(matrix);
-			//return new DJLTensorImpl(() -> ops, s, requires_grad(), create_graph);
-		}
-	}
-
 	@Override
 	protected void close(DJLTensorOperations djlTensorOperations) {
 		djlTensorOperations.close();
@@ -10,4 +10,6 @@ public interface DJLTensorOperations extends TensorOperations<DJLTensorOperation
 	NDArray getNDArray();
 
 	boolean isNativeGradient();
+
+	boolean isContiguous();
 }
@@ -1,16 +1,24 @@
 package org.ml4j.tensor.djl;
 
+import ai.djl.Device;
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.index.NDIndex;
 import ai.djl.ndarray.internal.NDArrayEx;
 import ai.djl.ndarray.types.DataType;
 import ai.djl.ndarray.types.Shape;
+import ai.djl.util.NativeResource;
 import org.jvmpy.symbolictensors.Operation;
 import org.jvmpy.symbolictensors.Size;
+import org.ml4j.tensor.BroadcastRules;
 import org.ml4j.tensor.TensorOperations;
 import org.ml4j.tensor.dl4j.DL4JTensorOperations;
+import org.ml4j.tensor.memory.TensorMemoryTracker;
+import org.ml4j.tensor.memory.TrackedAllocation;
 import org.ml4j.tensor.ml4j.ML4JTensorOperations;
+import org.nd4j.linalg.api.ndarray.INDArray;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiFunction;
@@ -23,20 +31,82 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
     private NDArray ndArray;
     protected Shape shape;
     protected boolean nativeGradient;
+    // Only arrays allocated here are known to be dense - arrays passed in may be strided views.
+    protected boolean contiguous;
+    private int version;
+
+    // Keeps alive the native array whose buffer ndArray shares, if any.
+    private Object source;
+
+    private TrackedAllocation allocation;
+
+    // Whether another tensor views this tensor's native buffer, so that it must not be closed with this tensor.
+    private boolean shared;
 
     protected DJLTensorOperationsImpl(NDArray a) {
         this.ndArray = a;
         this.shape = a.getShape();
+        trackAllocation();
     }
 
     public DJLTensorOperationsImpl(ML4JTensorOperations other) {
         this.ndArray = DJLTensorFactory.getManager().create(other.getDataAsFloatArray(), DJLTensorFactory.getShape(other.size()));
         this.shape = DJLTensorFactory.getShape(other.size());
+        this.contiguous = true;
+        trackAllocation();
     }
 
     public DJLTensorOperationsImpl(DL4JTensorOperations other) {
-        this.ndArray = DJLTensorFactory.getManager().create(other.getDataAsFloatArray(), DJLTensorFactory.getShape(other.size()));
         this.shape = DJLTensorFactory.getShape(other.size());
+        INDArray array = other.getNDArray();
+        if (canShareBuffer(array)) {
+            this.ndArray = DJLTensorFactory.getManager().create(asByteBuffer(array), shape, DataType.FLOAT32);
+            this.source = array;
+        } else {
+            this.ndArray = DJLTensorFactory.getManager().create(other.getDataAsFloatArray(), shape);
+        }
+        this.contiguous = true;
+        trackAllocation();
+    }
+
+    /**
+     * Whether the off-heap buffer of the INDArray can be handed to DJL as is - it must be a dense,
+     * row-major float array that owns its whole buffer, outside any workspace, as workspace memory is
+     * reused by the next scope and released with the workspace.
+     */
+    private static boolean canShareBuffer(INDArray array) {
+        return array.dataType() == org.nd4j.linalg.api.buffer.DataType.FLOAT && !array.isAttached()
+                && array.ordering() == 'c' && !array.isView() && !array.isEmpty()
+                && array.data().length() == array.length() && array.data().asNio() != null;
+    }
+
+    private static ByteBuffer asByteBuffer(INDArray array) {
+        ByteBuffer buffer = array.data().asNio().duplicate();
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.position(0);
+        buffer.limit((int) array.length() * Float.BYTES);
+        return buffer;
+    }
+
+    /**
+     * Whether this tensor's native buffer holds its elements densely in row-major order, so that it
+     * can be shared with another backend without a copy.  Transposes and slices are strided views,
+     * and elementwise results of such views keep their strides.
+     */
+    public boolean isContiguous() {
+        return contiguous && Device.Type.CPU.equals(ndArray.getDevice().getDeviceType());
+    }
+
+    private void trackAllocation() {
+        if (TensorMemoryTracker.isEnabled() && ndArray != null) {
+            NDArray array = ndArray;
+            allocation = TensorMemoryTracker.track(this, TensorMemoryTracker.DJL,
+                    array.size() * array.getDataType().getNumOfBytes(), () -> isReleased(array));
+        }
+    }
+
+    private static boolean isReleased(NDArray array) {
+        return array instanceof NativeResource && ((NativeResource<?>) array).isReleased();
     }
 
     public void setNativeGradient(boolean nativeGradient) {
@@ -47,6 +117,15 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
         return nativeGradient;
     }
 
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    @Override
+    public int version() {
+        return version;
+    }
+
     protected DJLTensorOperationsImpl(Shape a) {
         this.ndArray = null;
         this.shape = a;
@@ -58,10 +137,12 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
         if (requires_grad) {
             ndArray.setRequiresGradient(true);
         }
+        trackAllocation();
     }
 
     @Override
     public DJLTensorOperations resize_(Size size) {
+        version++;
         Size thisSize = this.getSize(shape);
         if (thisSize.numel() != size.numel()) {
             throw new IllegalArgumentException();
@@ -78,6 +159,7 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
 
     @Override
     public void performInlineOperation(Operation<DJLTensorOperations, Size> operation) {
+        version++;
         operation.apply(this);
     }
 
@@ -94,18 +176,34 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
 
     @Override
     public DJLTensorOperations zero_() {
-        this.ndArray = DJLTensorFactory.getManager().zeros(getShape(size()), DataType.FLOAT32);
-        return this;    }
+        return fill_(0);
+    }
 
     @Override
     public DJLTensorOperations normal_(float v1, float v2) {
-        this.ndArray = DJLTensorFactory.getManager().randomNormal(v1, v2, getShape(size()), DataType.FLOAT32);
+        version++;
+        try (NDArray values = ndArray.getManager().randomNormal(v1, v2, ndArray.getShape(), DataType.FLOAT32)) {
+            set(values);
+        }
+        return this;
+    }
+
+    @Override
+    public DJLTensorOperations uniform_(float from, float to) {
+        version++;
+        try (NDArray values = ndArray.getManager().randomUniform(from, to, ndArray.getShape(), DataType.FLOAT32)) {
+            set(values);
+        }
         return this;
     }
 
     @Override
     public DJLTensorOperations fill_(float value) {
-        throw new UnsupportedOperationException();
+        version++;
+        try (NativeGradMode nativeGradMode = NativeGradMode.disable()) {
+            ndArray.set(new NDIndex(), value);
+        }
+        return this;
     }
 
     @Override
@@ -122,7 +220,13 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
 
     @Override
     public void close() {
-        //ndArray.close();
+        if (allocation != null) {
+            allocation.release();
+        }
+        // Native gradients are owned by the array they are the gradient of.
+        if (ndArray != null && !shared && !nativeGradient) {
+            ndArray.close();
+        }
     }
 
 
@@ -144,6 +248,7 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
         if (requires_grad) {
             ndArray.setRequiresGradient(true);
         }
+        trackAllocation();
     }
 
     @Override
@@ -156,11 +261,22 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
     }
 
     public DJLTensorOperationsImpl(Shape shape, float initialValue, boolean requires_grad) {
-        this.ndArray = DJLTensorFactory.getManager().ones(shape).mul(initialValue);
+        this.ndArray = DJLTensorFactory.getManager().full(shape, initialValue);
         if (requires_grad) {
             this.ndArray.setRequiresGradient(true);
         }
         this.shape = shape;
+        this.contiguous = true;
+        trackAllocation();
+    }
+
+    /**
+     * Wraps an array freshly allocated by a manager, which is known to be dense and row-major.
+     */
+    static DJLTensorOperationsImpl allocated(NDArray array) {
+        DJLTensorOperationsImpl result = new DJLTensorOperationsImpl(array);
+        result.contiguous = true;
+        return result;
     }
 
     public NDArray getNDArray() {
@@ -171,15 +287,21 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
         if (requires_grad) {
             other.setRequiresGradient(true);
         }
-        return new DJLTensorOperationsImpl(other, requires_grad);
+        return new DJLTensorOperationsImpl(DJLTensorScope.attachToCurrentScope(other), requires_grad);
+    }
+
+    protected DJLTensorOperations create(NDArray other, boolean requires_grad, boolean contiguous) {
+        DJLTensorOperationsImpl result = (DJLTensorOperationsImpl) create(other, requires_grad);
+        result.contiguous = contiguous;
+        return result;
     }
 
     public final Supplier<DJLTensorOperations> zero(Shape shape) {
-        return () -> create(DJLTensorFactory.getManager().zeros(shape), false);
+        return () -> create(DJLTensorFactory.getManager().zeros(shape), false, true);
     }
 
     public final Supplier<DJLTensorOperations> one(Shape shape) {
-        return () -> create(DJLTensorFactory.getManager().ones(shape), false);
+        return () -> create(DJLTensorFactory.getManager().ones(shape), false, true);
     }
 
     @Override
@@ -199,7 +321,7 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
         for (int i = 0; i < axes.length - 1; i++) {
             axes[i + 1] = i;
         }
-        DJLTensorOperations result = create(getNDArray().transpose(axes), false);
+        DJLTensorOperations result = create(getNDArray().transpose(axes), false, false);
 
         return result;
     }
@@ -225,15 +347,15 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
     }
 
     protected DJLTensorOperations applyBinaryOperation(DJLTensorOperations other, BinaryOperator<NDArray> op) {
-        return create(op.apply(getNDArray(), other.getNDArray()), false);
+        return create(op.apply(getNDArray(), other.getNDArray()), false, contiguous && other.isContiguous());
     }
 
     protected DJLTensorOperations applyUnaryOperation(UnaryOperator<NDArray> op) {
-        return create(op.apply(getNDArray()), false);
+        return create(op.apply(getNDArray()), false, contiguous);
     }
 
     protected DJLTensorOperations applyWithFloatOperation(float other, BiFunction<NDArray, Float, NDArray> op) {
-        return create(op.apply(getNDArray(), other), false);
+        return create(op.apply(getNDArray(), other), false, contiguous);
     }
 
     @Override
@@ -247,13 +369,35 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
     }
 
 
+    @Override
+    public DJLTensorOperations relu_() {
+        version++;
+        try (NDArray mask = ndArray.gt(0)) {
+            ndArray.muli(mask);
+        }
+        return this;
+    }
+
     private NDArrayEx extend(NDArray array) {
         return array.getNDArrayInternal();
     }
 
+    /**
+     * Assigns the values to the whole array in place.  The assignment is not recorded natively, as
+     * PyTorch rejects in-place writes to a leaf which requires grad, eg. when initialising parameters.
+     */
+    private void set(NDArray values) {
+        try (NativeGradMode nativeGradMode = NativeGradMode.disable()) {
+            ndArray.set(new NDIndex(), values);
+        }
+    }
+
     @Override
     public DJLTensorOperations bernoulli() {
-        throw new UnsupportedOperationException();
+        try (NDArray uniform = ndArray.getManager().randomUniform(0, 1, ndArray.getShape(), DataType.FLOAT32);
+             NDArray mask = uniform.lt(ndArray)) {
+            return create(mask.toType(DataType.FLOAT32, true), false, true);
+        }
     }
 
     @Override
@@ -261,6 +405,15 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
         return applyUnaryOperation(n -> extend(n).sigmoid());
     }
 
+    @Override
+    public DJLTensorOperations sigmoid_() {
+        version++;
+        try (NDArray sigmoid = extend(ndArray).sigmoid()) {
+            ndArray.set(new NDIndex(), sigmoid);
+        }
+        return this;
+    }
+
     @Override
     public DJLTensorOperations exp() {
         return applyUnaryOperation(n -> n.exp());
@@ -273,17 +426,18 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
 
     @Override
     public DJLTensorOperations gt(float value) {
-        return create(getNDArray().gt(value), false);
+        return create(getNDArray().gt(value), false, true);
     }
 
     @Override
     public DJLTensorOperations gte(float value) {
-        return create(getNDArray().gte(value), false);
+        return create(getNDArray().gte(value), false, true);
     }
 
 
     @Override
     public DJLTensorOperations add_(DJLTensorOperations other) {
+        version++;
         if (other.size().dimensions().length == 1 && (size().dimensions()[1] == 1 || size().dimensions()[0] == 1)) {
             other = other.reshape(size());
         }
@@ -296,36 +450,42 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
 
     @Override
     public DJLTensorOperations div_(DJLTensorOperations other) {
+        version++;
         getNDArray().divi(other.getNDArray());
         return this;
     }
 
     @Override
     public DJLTensorOperations mul_(float v) {
+        version++;
         getNDArray().muli(v);
         return this;
     }
 
     @Override
     public DJLTensorOperations add_(float v) {
+        version++;
         getNDArray().addi(v);
         return this;
     }
 
     @Override
     public DJLTensorOperations div_(float v) {
+        version++;
         getNDArray().divi(v);
         return this;
     }
 
     @Override
     public DJLTensorOperations sub_(float v) {
+        version++;
         getNDArray().subi(v);
         return this;
     }
 
     @Override
     public DJLTensorOperations sub_(DJLTensorOperations other) {
+        version++;
         if (other.size().dimensions().length == 1 && (size().dimensions()[1] == 1 || size().dimensions()[0] == 1)) {
             other.resize_(size());
         }
@@ -342,6 +502,13 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
         return applyUnaryOperation(n -> n.neg());
     }
 
+    @Override
+    public DJLTensorOperations neg_() {
+        version++;
+        ndArray.negi();
+        return this;
+    }
+
     @Override
     public DJLTensorOperations sub(DJLTensorOperations other) {
         return applyBinaryOperation(other, (f, s) -> f.sub(s));
@@ -349,7 +516,24 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
 
     @Override
     public DJLTensorOperations matmul(DJLTensorOperations other) {
-        return applyBinaryOperation(other, (f, s) -> f.matMul(s));
+        return create(getNDArray().matMul(other.getNDArray()), false, true);
+    }
+
+    @Override
+    public DJLTensorOperations matmul(DJLTensorOperations other, boolean transposeThis, boolean transposeOther) {
+        // Transposes are strided views, which PyTorch passes to gemm as transpose flags.
+        NDArray first = transposeThis ? getNDArray().transpose() : getNDArray();
+        NDArray second = transposeOther ? other.getNDArray().transpose() : other.getNDArray();
+        try {
+            return create(first.matMul(second), false, true);
+        } finally {
+            if (transposeThis) {
+                first.close();
+            }
+            if (transposeOther) {
+                second.close();
+            }
+        }
     }
 
     @Override
@@ -359,7 +543,40 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
 
     @Override
     public DJLTensorOperations sum(int...axes) {
-        return create(getNDArray().sum(axes), false);
+        return create(getNDArray().sum(axes), false, true);
+    }
+
+    @Override
+    public DJLTensorOperations sumToSize(Size size) {
+        int[] axes = BroadcastRules.getReductionAxes(size(), size);
+        if (axes.length == 0) {
+            return reshape(size);
+        }
+        return create(getNDArray().sum(axes, true).reshape(getShape(size)), false, true);
+    }
+
+    @Override
+    public DJLTensorOperations expand(Size size) {
+        if (size.numel() == numel()) {
+            return reshape(size);
+        }
+        // Materialise the broadcast view, so that in-place operations on the result cannot write through it.
+        try (NDArray view = getNDArray().broadcast(getShape(size))) {
+            return create(view.duplicate(), false, true);
+        }
+    }
+
+    @Override
+    public DJLTensorOperations reluBackward(DJLTensorOperations input) {
+        try (NDArray mask = input.getNDArray().gt(0)) {
+            return create(getNDArray().mul(mask), false, contiguous && input.isContiguous());
+        }
+    }
+
+    @Override
+    public DJLTensorOperations sigmoidBackward(DJLTensorOperations output) {
+        NDArray y = output.getNDArray();
+        return create(y.neg().addi(1).muli(y).muli(getNDArray()), false, contiguous && output.isContiguous());
     }
 
     @Override
@@ -384,9 +601,9 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
         }
         String r = inds.toString().replace("[","").replace("]", "");
         if (indexes.length == 2 && getNDArray().getShape().getShape().length == 1) {
-            return create(getNDArray().reshape(1, getShape().getShape()[0]).get(new NDIndex(r)), false);
+            return create(getNDArray().reshape(1, getShape().getShape()[0]).get(new NDIndex(r)), false, false);
         } else {
-            return create(getNDArray().get(new NDIndex(r)), false);
+            return create(getNDArray().get(new NDIndex(r)), false, false);
         }
     }
 
@@ -406,14 +623,15 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
         String r = inds.toString().replace("[","").replace("]", "");
 
         if (false && ranges.length == 2 && getNDArray().getShape().getShape().length == 1) {
-            return create(getNDArray().reshape(1, getShape().getShape()[0]).get(new NDIndex(r)), false);
+            return create(getNDArray().reshape(1, getShape().getShape()[0]).get(new NDIndex(r)), false, false);
         } else {
-            return create(getNDArray().get(new NDIndex(r)), false);
+            return create(getNDArray().get(new NDIndex(r)), false, false);
         }
     }
 
     @Override
     public void putTensor(DJLTensorOperations tensor, int[]... ranges) {
+        version++;
         List<String> inds = new ArrayList<>();
         for (int i = 0; i < ranges.length; i++) {
             if (ranges[i][0] == -1 && ranges[i][1] == -1) {
@@ -438,6 +656,7 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
 
     @Override
     public void putTensor(DJLTensorOperations tensor, int... indexes) {
+        version++;
         List<String> inds = new ArrayList<>();
         for (int i = 0; i < indexes.length; i++) {
             inds.add(indexes[i] == -1 ? ":" : (indexes[i] + ""));
@@ -448,12 +667,12 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
 
     @Override
     public DJLTensorOperations argMax() {
-        return create(getNDArray().argMax(), false);
+        return create(getNDArray().argMax(), false, true);
     }
 
     @Override
     public DJLTensorOperations argMax(int i) {
-        return create(getNDArray().argMax(i), false);
+        return create(getNDArray().argMax(i), false, true);
     }
 
     private static long[] getIndexes(Size size, int index) {
@@ -469,12 +688,14 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
 
     @Override
     public void put(int index, float value) {
+        version++;
         NDIndex ind = new NDIndex(getIndexes(size(), index));
         ndArray.set(ind, value);
     }
 
     @Override
     public void put(float value, int...indexes) {
+        version++;
         long[] inds = new long[indexes.length];
         for (int i = 0; i < indexes.length; i++) {
             inds[i] = indexes[i];
@@ -485,37 +706,38 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
 
     @Override
     public DJLTensorOperations mean() {
-        throw new UnsupportedOperationException();
+        return create(getNDArray().mean(), false, true);
     }
 
     @Override
     public DJLTensorOperations norm() {
-        throw new UnsupportedOperationException();
+        try (NDArray squares = ndArray.square(); NDArray sumOfSquares = squares.sum()) {
+            return create(sumOfSquares.sqrt(), false, true);
+        }
     }
 
     @Override
     public DJLTensorOperations mul_(DJLTensorOperations other) {
+        version++;
         getNDArray().muli(other.getNDArray());
         return this;
     }
 
     @Override
     public DJLTensorOperations columnSums() {
-        throw new UnsupportedOperationException();
+        return create(getNDArray().sum(new int[] {0}, true), false, true);
     }
 
     @Override
     public DJLTensorOperations rowSums() {
-        throw new UnsupportedOperationException();
+        return create(getNDArray().sum(new int[] {1}, true), false, true);
     }
 
     @Override
     public DJLTensorOperations cloneTensor() {
-        return toDJLTensorOperations(ndArray.duplicate());
-    }
-
-    private DJLTensorOperations toDJLTensorOperations(NDArray matrix) {
-        return new DJLTensorOperationsImpl(matrix);
+        DJLTensorOperationsImpl clone = new DJLTensorOperationsImpl(DJLTensorScope.attachToCurrentScope(ndArray.duplicate()));
+        clone.contiguous = contiguous;
+        return clone;
     }
 
     private Shape getShape(Size size) {
@@ -528,7 +750,9 @@ public class DJLTensorOperationsImpl implements TensorOperations<DJLTensorOperat
 
     @Override
     public float[] getDataAsFloatArray() {
-
+        if (getNDArray().getDataType() == DataType.FLOAT32) {
+            return getNDArray().toFloatArray();
+        }
         Number[] b = this.getNDArray().toArray();
         float[] d = new float[b.length];
         for (int i = 0; i < d.length; i++) {
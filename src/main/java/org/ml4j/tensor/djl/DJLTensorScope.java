@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.djl;
+
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A try-with-resources scope for the native memory of DJL tensors.
+ *
+ * While a scope is open on the current thread, every NDArray created by the DJL tensors - including
+ * the results of operations on arrays created outside the scope - is attached to a sub-manager
+ * of the scope, and is freed when the scope is closed.  Values which must outlive the scope, such as
+ * parameters and gradients, are detached to the enclosing scope (or the base manager) with keep().
+ *
+ * <pre>
+ * try (DJLTensorScope scope = DJLTensorScope.open()) {
+ *     DJLTensor loss = model.forward(input);
+ *     loss.backward();
+ *     scope.keep(weights.grad());
+ * }
+ * </pre>
+ *
+ * Scopes may be nested, and must be closed on the thread that opened them.  Operations run on other
+ * threads, such as those replayed concurrently by CapturedGraph, are outside the scope.
+ *
+ * @author Michael Lavelle
+ */
+public class DJLTensorScope implements AutoCloseable {
+
+    private static final ThreadLocal<Deque<DJLTensorScope>> SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final NDManager parentManager;
+    private final NDManager manager;
+    private boolean closed;
+
+    private DJLTensorScope(NDManager parentManager) {
+        this.parentManager = parentManager;
+        this.manager = parentManager.newSubManager();
+    }
+
+    /**
+     * Opens a new scope on the current thread, nested within the current scope if there is one.
+     */
+    public static DJLTensorScope open() {
+        DJLTensorScope scope = new DJLTensorScope(DJLTensorFactory.getManager());
+        SCOPES.get().push(scope);
+        return scope;
+    }
+
+    /**
+     * @return The manager of the innermost scope open on the current thread, or null if none is open.
+     */
+    static NDManager getCurrentManager() {
+        DJLTensorScope scope = SCOPES.get().peek();
+        return scope == null ? null : scope.manager;
+    }
+
+    /**
+     * Attaches the array to the innermost open scope, if any, so that it is freed with that scope.
+     */
+    static NDArray attachToCurrentScope(NDArray array) {
+        NDManager current = getCurrentManager();
+        if (current != null && array.getManager() != current) {
+            array.attach(current);
+        }
+        return array;
+    }
+
+    public NDManager getManager() {
+        return manager;
+    }
+
+    /**
+     * Detaches the tensor's data from this scope so that it survives the scope being closed,
+     * attaching it to the enclosing scope, or to the base manager if this is the outermost scope.
+     */
+    public <T extends DJLTensor> T keep(T tensor) {
+        if (tensor != null) {
+            keep(tensor.getNDArray());
+        }
+        return tensor;
+    }
+
+    /**
+     * Detaches the array from this scope so that it survives the scope being closed.
+     */
+    public NDArray keep(NDArray array) {
+        if (array != null && array.getManager() == manager) {
+            array.attach(parentManager);
+        }
+        return array;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            SCOPES.get().remove(this);
+            manager.close();
+        }
+    }
+}
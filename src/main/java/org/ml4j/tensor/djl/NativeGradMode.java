@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.ml4j.tensor.djl;
+
+import ai.djl.pytorch.jni.JniUtils;
+
+/**
+ * A try-with-resources scope in which PyTorch records no native gradient graph.
+ *
+ * Scopes may be nested, and must be closed on the thread that opened them.  Only the outermost scope
+ * switches PyTorch's grad mode off, and it restores the mode it found when it is closed, so that
+ * closing a nested scope does not resume recording for the rest of the enclosing one.
+ *
+ * @author Michael Lavelle
+ */
+final class NativeGradMode implements AutoCloseable {
+
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final boolean restore;
+    private boolean closed;
+
+    private NativeGradMode(boolean restore) {
+        this.restore = restore;
+    }
+
+    /**
+     * Disables PyTorch's grad mode on the current thread until the returned scope is closed.
+     */
+    static NativeGradMode disable() {
+        boolean restore = DEPTH.get()[0]++ == 0 && JniUtils.isGradMode();
+        if (restore) {
+            JniUtils.setGradMode(false);
+        }
+        return new NativeGradMode(restore);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            DEPTH.get()[0]--;
+            if (restore) {
+                JniUtils.setGradMode(true);
+            }
+        }
+    }
+}
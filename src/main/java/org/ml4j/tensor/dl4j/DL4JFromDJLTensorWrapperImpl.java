@@ -12,7 +12,6 @@ import org.ml4j.tensor.TensorWrapperImpl;
 import org.ml4j.tensor.djl.*;
 import org.ml4j.tensor.ml4j.ML4JTensor;
 import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.factory.Nd4j;
 
 public class DL4JFromDJLTensorWrapperImpl extends TensorWrapperImpl<DJLTensor, DL4JTensor, DJLTensorOperations, DL4JTensorOperations> implements DL4JTensor {
 
@@ -76,11 +75,7 @@ public class DL4JFromDJLTensorWrapperImpl extends TensorWrapperImpl<DJLTensor, D
 
     @Override
     public INDArray getNDArray() {
-        if (size().dimensions().length == 0) {
-            return Nd4j.scalar(getDataAsFloatArray()[0]);
-        } else {
-            return Nd4j.create(getDataAsFloatArray(), size().dimensions());
-        }
+        return data().get().getNDArray();
     }
 
     @Override
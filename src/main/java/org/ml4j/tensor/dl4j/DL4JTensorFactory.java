@@ -17,7 +17,6 @@ public class DL4JTensorFactory implements TensorFactory<DL4JTensor, DL4JTensorOp
 
     @Override
     public DL4JTensor create(float[] data, Size size) {
-        System.out.println("Creating:" + size);
         return new DL4JTensorImpl(() -> new DL4JTensorOperationsImpl(Nd4j.create(data, size.dimensions())), new AutogradValueProperties<Size>().setContext(size));
     }
 
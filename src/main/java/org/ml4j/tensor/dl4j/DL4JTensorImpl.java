@@ -134,45 +134,6 @@ public class DL4JTensorImpl extends DifferentiableWrappedTensorOperations<DL4JTe
 		requires_grad_(properties.isRequires_grad());
 	}
 
-	@Override
-	protected DL4JTensor getSub(DL4JTensor other, Size size, float scale) {
-		if (scale == 1) {
-			return other;
-		} else {
-			boolean scalar = size.dimensions().length == 0;
-			int div = (int) Math.sqrt(scale);
-			int[] dims = other.size().dimensions();
-			int prod = 1;
-			int[] newDims = new int[dims.length];
-			for (int i = 0; i < newDims.length; i++) {
-				newDims[i] = dims[i] /div;
-				prod = prod * newDims[i];
-			}
-			float[] oldData = other.getDataAsFloatArray();
-			float[] data = new float[prod];
-			int ind = 0;
-			int newInd = 0;
-			for (int i = 0; i < dims.length; i++) {
-				for (int j = 0; j < dims[i]; j++) {
-					if (j < newDims[i]) {
-						if (newInd < data.length && ind < oldData.length) {
-							data[newInd] = oldData[ind];
-						}
-						newInd++;
-
-					}
-					ind++;
-				}
-			}
-
-			INDArray matrixOld = other.data().get().getNDArray();
-			Size s = scalar ? new Size() : new Size(newDims);
-			INDArray matrix = s.dimensions().length == 0 ? Nd4j.scalar(data[0]) : Nd4j.create(data, s.dimensions());
-			DL4JTensorOperations ops = new DL4JTensorOperationsImpl(matrix);
-			return new DL4JTensorImpl(() -> ops, new AutogradValueProperties<Size>().setContext(s).setRequires_grad(requires_grad()).setRegistry(properties().getRegistry()).setCreate_graph(create_graph()));
-		}
-	}
-
 	@Override
 	protected void close(DL4JTensorOperations dl4JTensorOperations) {
 
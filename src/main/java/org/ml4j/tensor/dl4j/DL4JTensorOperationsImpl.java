@@ -2,11 +2,26 @@ package org.ml4j.tensor.dl4j;
 
 import org.jvmpy.symbolictensors.Operation;
 import org.jvmpy.symbolictensors.Size;
+import ai.djl.ndarray.NDArray;
+import org.ml4j.tensor.BroadcastRules;
+import org.ml4j.tensor.djl.DJLTensorFactory;
 import org.ml4j.tensor.djl.DJLTensorOperations;
+import org.ml4j.tensor.djl.DJLTensorOperationsImpl;
+import org.ml4j.tensor.memory.TensorMemoryTracker;
+import org.ml4j.tensor.memory.TrackedAllocation;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.transforms.gradient.RectifiedLinearDerivative;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.ops.transforms.Transforms;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
@@ -17,15 +32,41 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 
 	private INDArray ndArray;
 	private int[] shape;
+	private int version;
+
+	// Keeps alive the native array whose buffer ndArray shares, if any.
+	private Object source;
+
+	private TrackedAllocation allocation;
 
 	public DL4JTensorOperationsImpl(INDArray a) {
 		this.ndArray = a;
 		this.shape = getShape(a.shape()).dimensions();
+		trackAllocation();
 	}
 
 	public DL4JTensorOperationsImpl(DJLTensorOperations other) {
-		this.ndArray = Nd4j.create(other.getDataAsFloatArray(), other.size().dimensions());
 		this.shape = other.size().dimensions();
+		NDArray array = other.getNDArray();
+		if (shape.length == 0) {
+			this.ndArray = Nd4j.scalar(array.getFloat());
+		} else if (array.getDataType() == ai.djl.ndarray.types.DataType.FLOAT32 && other.isContiguous()
+				&& DJLTensorFactory.isOwnedByBaseManager(array)) {
+			// Hand the PyTorch buffer to ND4J rather than copying it to a Java array first.  Depending on
+			// the ND4J backend the DataBuffer may wrap the direct buffer or copy it - source keeps the
+			// PyTorch array alive in case it is wrapped.  Arrays of a DJLTensorScope are copied instead,
+			// as closing the scope frees them however they are referenced.
+			ByteBuffer bytes = array.toByteBuffer().order(ByteOrder.nativeOrder());
+			DataBuffer buffer = Nd4j.createBuffer(bytes, DataType.FLOAT, other.numel());
+			this.ndArray = Nd4j.create(buffer, array.getShape().getShape());
+			this.source = array;
+			if (other instanceof DJLTensorOperationsImpl) {
+				((DJLTensorOperationsImpl) other).setShared(true);
+			}
+		} else {
+			this.ndArray = Nd4j.create(other.getDataAsFloatArray(), shape);
+		}
+		trackAllocation();
 	}
 
 	protected DL4JTensorOperationsImpl(Size a) {
@@ -33,6 +74,14 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 		this.shape = a.dimensions();
 	}
 
+	private void trackAllocation() {
+		if (TensorMemoryTracker.isEnabled() && ndArray != null) {
+			// ND4J frees the buffer once the array is garbage collected, so it is never reported as unclosed.
+			allocation = TensorMemoryTracker.track(this, TensorMemoryTracker.DL4J,
+					ndArray.length() * ndArray.dataType().width(), () -> true);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "" + getNDArray();
@@ -48,12 +97,25 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 		} else {
 			this.ndArray = Nd4j.scalar(initialValue);
 		}
+		trackAllocation();
 	}
 
 	public INDArray getNDArray() {
 		return ndArray;
 	}
 
+	/**
+	 * Moves the array out of the scope's workspace, if it was allocated within it.
+	 */
+	void keep(DL4JTensorScope scope) {
+		INDArray kept = scope.keep(ndArray);
+		if (kept != ndArray) {
+			// Copies converted from the workspace buffer are stale once the array has moved.
+			version++;
+			ndArray = kept;
+		}
+	}
+
 	public DL4JTensorOperations create(INDArray other) {
 		return new DL4JTensorOperationsImpl(other);
 	}
@@ -87,15 +149,22 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 	}
 
 	protected DL4JTensorOperations applyBinaryOperation(DL4JTensorOperations other, BinaryOperator<INDArray> op) {
-		return create(op.apply(getNDArray(), other.getNDArray()));
+		return create(op.apply(floatValues(getNDArray()), floatValues(other.getNDArray())));
+	}
+
+	/**
+	 * Comparisons produce compact BOOL masks - these are widened to floats only when consumed by arithmetic.
+	 */
+	private static INDArray floatValues(INDArray array) {
+		return array.dataType() == DataType.BOOL ? array.castTo(DataType.FLOAT) : array;
 	}
 
 	protected DL4JTensorOperations applyUnaryOperation(UnaryOperator<INDArray> op) {
-		return create(op.apply(getNDArray()));
+		return create(op.apply(floatValues(getNDArray())));
 	}
 
 	protected DL4JTensorOperations applyWithFloatOperation(float other, BiFunction<INDArray, Float, INDArray> op) {
-		return create(op.apply(getNDArray(), other));
+		return create(op.apply(floatValues(getNDArray()), other));
 	}
 
 	@Override
@@ -115,32 +184,48 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 
 	@Override
 	public DL4JTensorOperations relu() {
-		return applyUnaryOperation(n -> n.gt(Nd4j.zeros(getNDArray().shape())).mul(getNDArray()));
+		return applyUnaryOperation(n -> Transforms.relu(n, true));
+	}
+
+	@Override
+	public DL4JTensorOperations relu_() {
+		version++;
+		Transforms.relu(getNDArray(), false);
+		return this;
 	}
 
 	@Override
 	public DL4JTensorOperations bernoulli() {
-		throw new UnsupportedOperationException();
+		return create(Nd4j.rand(getNDArray().shape()).lt(getNDArray()).castTo(DataType.FLOAT));
 	}
 
 	@Override
 	public DL4JTensorOperations sigmoid() {
-		throw new UnsupportedOperationException();
+		return create(Transforms.sigmoid(getNDArray(), true));
+	}
+
+	@Override
+	public DL4JTensorOperations sigmoid_() {
+		version++;
+		Transforms.sigmoid(getNDArray(), false);
+		return this;
 	}
 
 	@Override
 	public DL4JTensorOperations exp() {
-		throw new UnsupportedOperationException();
+		return create(Transforms.exp(getNDArray(), true));
 	}
 
 	@Override
 	public DL4JTensorOperations log() {
-		throw new UnsupportedOperationException();
+		return create(Transforms.log(getNDArray(), true));
 	}
 
 	@Override
 	public void close() {
-
+		if (allocation != null) {
+			allocation.release();
+		}
 	}
 
 	@Override
@@ -148,16 +233,65 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 		return false;
 	}
 
+	@Override
+	public int version() {
+		return version;
+	}
+
 	@Override
 	public DL4JTensorOperations sum(int... dims) {
 		if (dims.length > 0) {
 			return create(getNDArray().sum(dims));
 		} else {
-			if (getNDArray().shape().length == 0) {
-				return new DL4JTensorOperationsImpl(new Size(), getNDArray().getFloat(0));
-			}
-			return create(getNDArray().sum(0));
+			return create(getNDArray().sum());
+		}
+	}
+
+	@Override
+	public DL4JTensorOperations sumToSize(Size size) {
+		if (size.dimensions().length == 0) {
+			return create(getNDArray().sum());
 		}
+		int[] axes = BroadcastRules.getReductionAxes(size(), size);
+		INDArray summed = axes.length == 0 ? getNDArray() : getNDArray().sum(true, axes);
+		return create(summed.reshape('c', size.dimensions()));
+	}
+
+	@Override
+	public DL4JTensorOperations expand(Size size) {
+		if (size.numel() == numel()) {
+			return reshape(size);
+		}
+		long[] shape = new long[size.dimensions().length];
+		for (int i = 0; i < shape.length; i++) {
+			shape[i] = size.dimensions()[i];
+		}
+		if (numel() == 1) {
+			return create(Nd4j.valueArrayOf(shape, get(0)));
+		}
+		INDArray array = getNDArray();
+		if (array.rank() < shape.length) {
+			// Broadcasting aligns trailing dimensions, so pad the shape with leading ones.
+			long[] padded = new long[shape.length];
+			Arrays.fill(padded, 1);
+			System.arraycopy(array.shape(), 0, padded, shape.length - array.rank(), array.rank());
+			array = array.reshape('c', padded);
+		}
+		return create(array.broadcast(shape));
+	}
+
+	@Override
+	public DL4JTensorOperations reluBackward(DL4JTensorOperations input) {
+		INDArray gradient = floatValues(getNDArray());
+		INDArray output = Nd4j.createUninitialized(gradient.dataType(), gradient.shape(), gradient.ordering());
+		Nd4j.getExecutioner().exec(new RectifiedLinearDerivative(floatValues(input.getNDArray()), gradient, output));
+		return create(output);
+	}
+
+	@Override
+	public DL4JTensorOperations sigmoidBackward(DL4JTensorOperations output) {
+		INDArray y = output.getNDArray();
+		return create(y.rsub(1).muli(y).muli(getNDArray()));
 	}
 
 	@Override
@@ -172,105 +306,149 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 
 	@Override
 	public DL4JTensorOperations getTensor(int... indexes) {
-		List<String> inds = new ArrayList<>();
-		for (int i = 0; i < indexes.length; i++) {
-			inds.add(indexes[i] == -1 ? ":" : (indexes[i] + ""));
-		}
-		String r = inds.toString().replace("[","").replace("]", "");
-		throw new UnsupportedOperationException();
+		return create(getNDArray().get(getIndices(indexes)));
 	}
 
 	@Override
 	public DL4JTensorOperations getTensor(int[]... ranges) {
-		throw new UnsupportedOperationException();
+		return create(getNDArray().get(getIndices(ranges)));
 	}
 
 	@Override
-	public void putTensor(DL4JTensorOperations tensor, int[]... indexes) {
-		throw new UnsupportedOperationException();
+	public void putTensor(DL4JTensorOperations tensor, int[]... ranges) {
+		version++;
+		getNDArray().put(getIndices(ranges), tensor.getNDArray());
 	}
 
 	@Override
 	public void putTensor(DL4JTensorOperations tensor, int... indexes) {
-		throw new UnsupportedOperationException();
+		version++;
+		getNDArray().put(getIndices(indexes), tensor.getNDArray());
+	}
+
+	/**
+	 * Indexes of -1 select the whole dimension - other indexes select a single element, retaining the
+	 * dimension as the ML4J backend does.
+	 */
+	private static INDArrayIndex[] getIndices(int... indexes) {
+		INDArrayIndex[] indices = new INDArrayIndex[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			indices[i] = indexes[i] == -1 ? NDArrayIndex.all() : NDArrayIndex.interval(indexes[i], indexes[i] + 1);
+		}
+		return indices;
+	}
+
+	/**
+	 * Ranges are [from, to), with -1 for the start or end of the dimension.
+	 */
+	private INDArrayIndex[] getIndices(int[]... ranges) {
+		INDArrayIndex[] indices = new INDArrayIndex[ranges.length];
+		for (int i = 0; i < ranges.length; i++) {
+			int from = ranges[i][0] == -1 ? 0 : ranges[i][0];
+			int to = ranges[i][1] == -1 ? size().dimensions()[i] : ranges[i][1];
+			indices[i] = NDArrayIndex.interval(from, to);
+		}
+		return indices;
 	}
 
 	@Override
 	public DL4JTensorOperations argMax(int axis) {
-		throw new UnsupportedOperationException();
+		return create(Nd4j.argMax(getNDArray(), axis));
 	}
 
 	@Override
 	public DL4JTensorOperations argMax() {
-		throw new UnsupportedOperationException();
+		return create(Nd4j.argMax(getNDArray()));
 	}
 
 	@Override
 	public void put(int index, float value) {
-		throw new UnsupportedOperationException();
-
+		version++;
+		getNDArray().putScalar(index, value);
 	}
 
 	@Override
 	public void put(float value, int... indexes) {
-		throw new UnsupportedOperationException();
+		version++;
+		getNDArray().putScalar(indexes, value);
 	}
 
 	@Override
 	public DL4JTensorOperations mean() {
-		throw new UnsupportedOperationException();
+		return create(getNDArray().mean());
 	}
 
 	@Override
 	public DL4JTensorOperations norm() {
-		throw new UnsupportedOperationException();
+		return create(getNDArray().norm2());
 	}
 
 	@Override
 	public DL4JTensorOperations mul_(DL4JTensorOperations other) {
-		throw new UnsupportedOperationException();
+		version++;
+		getNDArray().muli(floatValues(other.getNDArray()));
+		return this;
 	}
 
 	@Override
 	public DL4JTensorOperations add_(float v) {
-		throw new UnsupportedOperationException();
+		version++;
+		getNDArray().addi(v);
+		return this;
 	}
 
 	@Override
 	public DL4JTensorOperations div_(float v) {
-		throw new UnsupportedOperationException();
+		version++;
+		getNDArray().divi(v);
+		return this;
 	}
 
 	@Override
 	public DL4JTensorOperations sub_(float v) {
-		throw new UnsupportedOperationException();
+		version++;
+		getNDArray().subi(v);
+		return this;
 	}
 
 	@Override
 	public DL4JTensorOperations div_(DL4JTensorOperations other) {
-		throw new UnsupportedOperationException();
+		version++;
+		getNDArray().divi(floatValues(other.getNDArray()));
+		return this;
 	}
 
 	@Override
 	public DL4JTensorOperations mul_(float v) {
-		throw new UnsupportedOperationException();
+		version++;
+		getNDArray().muli(v);
+		return this;
 	}
 
 	@Override
 	public DL4JTensorOperations columnSums() {
-		throw new UnsupportedOperationException();
+		if (size().dimensions().length != 2) {
+			throw new IllegalStateException("Tensor must be 2 dimensional");
+		}
+		return create(getNDArray().sum(true, 0));
 	}
 
 	@Override
 	public DL4JTensorOperations rowSums() {
-		throw new UnsupportedOperationException();
+		if (size().dimensions().length != 2) {
+			throw new IllegalStateException("Tensor must be 2 dimensional");
+		}
+		return create(getNDArray().sum(true, 1));
 	}
 
 	@Override
 	public DL4JTensorOperations cloneTensor() {
-		throw new UnsupportedOperationException();
+		return create(getNDArray().dup());
 	}
 
+	/**
+	 * @return A compact BOOL mask, widened to floats only if it is later used in arithmetic.
+	 */
 	@Override
 	public DL4JTensorOperations gt(float value) {
 		return create(getNDArray().gt(value));
@@ -283,13 +461,15 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 
 	@Override
 	public DL4JTensorOperations add_(DL4JTensorOperations other) {
-		getNDArray().addi(other.getNDArray());
+		version++;
+		getNDArray().addi(floatValues(other.getNDArray()));
 		return this;
 	}
 
 	@Override
 	public DL4JTensorOperations sub_(DL4JTensorOperations other) {
-		getNDArray().subi(other.getNDArray());
+		version++;
+		getNDArray().subi(floatValues(other.getNDArray()));
 		return this;
 	}
 
@@ -298,6 +478,13 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 		return applyUnaryOperation(n -> n.neg());
 	}
 
+	@Override
+	public DL4JTensorOperations neg_() {
+		version++;
+		getNDArray().negi();
+		return this;
+	}
+
 	@Override
 	public DL4JTensorOperations sub(DL4JTensorOperations other) {
 		return applyBinaryOperation(other, (f, s) -> f.sub(s));
@@ -314,6 +501,11 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 		return ret;
 	}
 
+	@Override
+	public DL4JTensorOperations matmul(DL4JTensorOperations other, boolean transposeThis, boolean transposeOther) {
+		return create(Nd4j.gemm(getNDArray(), other.getNDArray(), transposeThis, transposeOther));
+	}
+
 	@Override
 	public int numel() {
 		return size().numel();
@@ -346,12 +538,6 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 
 		//Size newSize = new Size(dims2);
 		// TODO
-		for (long d : dims2) {
-			System.out.println("DIM:" + d);
-		}
-		for (long d : ndArray.shape()) {
-			System.out.println("SHAPE:" + d);
-		}
 		boolean same = true;
 		if (dims2.length == ndArray.shape().length) {
 			for (int i = 0; i < dims2.length; i++) {
@@ -400,6 +586,7 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 
 	@Override
 	public DL4JTensorOperations resize_(Size size) {
+		version++;
 		this.ndArray = getNDArray().reshape(size.dimensions());
 		return this;
 	}
@@ -427,24 +614,42 @@ public class DL4JTensorOperationsImpl implements DL4JTensorOperations {
 
 	@Override
 	public DL4JTensorOperations zero_() {
-		this.ndArray = Nd4j.zeros();
+		version++;
+		getNDArray().assign(0);
 		return this;
 	}
 
 	@Override
 	public DL4JTensorOperations normal_(float v1, float v2) {
-		this.ndArray = Nd4j.zeros();
+		version++;
+		getNDArray().assign(Nd4j.randn(getNDArray().shape()).muli(v2).addi(v1));
+		return this;
+	}
+
+	@Override
+	public DL4JTensorOperations uniform_(float from, float to) {
+		version++;
+		getNDArray().assign(Nd4j.rand(getNDArray().shape()).muli(to - from).addi(from));
 		return this;
 	}
 
 	@Override
 	public DL4JTensorOperations fill_(float value) {
-		throw new UnsupportedOperationException();
+		version++;
+		getNDArray().assign(value);
+		return this;
 	}
 
 	@Override
 	public float[] getDataAsFloatArray() {
-		return this.getNDArray().data().asFloat();
+		INDArray array = getNDArray();
+		if (array.dataType() != DataType.FLOAT) {
+			array = array.castTo(DataType.FLOAT);
+		}
+		if (array.isView() || array.ordering() != 'c' || array.data().length() != array.length()) {
+			array = array.dup('c');
+		}
+		return array.data().asFloat();
 	}
 
 	@Override
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.dl4j;
+
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
+import org.nd4j.linalg.api.memory.enums.AllocationPolicy;
+import org.nd4j.linalg.api.memory.enums.LearningPolicy;
+import org.nd4j.linalg.api.memory.enums.SpillPolicy;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A try-with-resources scope for the native memory of DL4J tensors, backed by an ND4J MemoryWorkspace.
+ *
+ * While a scope is open on the current thread, every INDArray created by the DL4J tensors is
+ * allocated from the scope's workspace, which is reset when the scope is closed.  The workspace
+ * learns the size of a step the first time it is used, so that later steps opening a scope at the
+ * same depth reuse one arena rather than allocating each intermediate separately.  Values which must
+ * outlive the scope, such as parameters and gradients, are moved to the enclosing scope (or out of
+ * workspaces altogether) with keep().
+ *
+ * <pre>
+ * try (DL4JTensorScope scope = DL4JTensorScope.open()) {
+ *     DL4JTensor loss = model.forward(input);
+ *     loss.backward();
+ *     scope.keep(weights.grad());
+ * }
+ * </pre>
+ *
+ * Scopes may be nested, and must be closed on the thread that opened them.  Tensors created within a
+ * scope and not kept must not be used after it is closed.  Operations run on other threads, such as
+ * those replayed concurrently by CapturedGraph, are outside the scope.
+ *
+ * @author Michael Lavelle
+ */
+public class DL4JTensorScope implements AutoCloseable {
+
+    public static final String WORKSPACE_ID_PREFIX = "ml4j-tensor-";
+
+    private static final WorkspaceConfiguration CONFIGURATION = WorkspaceConfiguration.builder()
+            .policyAllocation(AllocationPolicy.STRICT)
+            .policyLearning(LearningPolicy.FIRST_LOOP)
+            .policySpill(SpillPolicy.REALLOCATE)
+            .build();
+
+    private static final ThreadLocal<Deque<DL4JTensorScope>> SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final DL4JTensorScope parent;
+    private final MemoryWorkspace workspace;
+    private boolean closed;
+
+    private DL4JTensorScope(DL4JTensorScope parent, String workspaceId) {
+        this.parent = parent;
+        this.workspace = Nd4j.getWorkspaceManager().getAndActivateWorkspace(CONFIGURATION, workspaceId);
+    }
+
+    /**
+     * Opens a new scope on the current thread, nested within the current scope if there is one.
+     */
+    public static DL4JTensorScope open() {
+        Deque<DL4JTensorScope> scopes = SCOPES.get();
+        DL4JTensorScope scope = new DL4JTensorScope(scopes.peek(), WORKSPACE_ID_PREFIX + scopes.size());
+        scopes.push(scope);
+        return scope;
+    }
+
+    public MemoryWorkspace getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * Moves the tensor's data out of this scope's workspace so that it survives the scope being
+     * closed, into the enclosing scope's workspace, or out of workspaces if this is the outermost scope.
+     */
+    public <T extends DL4JTensor> T keep(T tensor) {
+        if (tensor != null && tensor.data().get() instanceof DL4JTensorOperationsImpl) {
+            ((DL4JTensorOperationsImpl) tensor.data().get()).keep(this);
+        }
+        return tensor;
+    }
+
+    /**
+     * @return The array, or a copy of it outside this scope's workspace if it was allocated within it.
+     */
+    public INDArray keep(INDArray array) {
+        if (array == null || !array.isAttached() || !workspace.getId().equals(array.data().getParentWorkspace().getId())) {
+            return array;
+        }
+        return parent == null ? array.detach() : array.leverageTo(parent.workspace.getId());
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            SCOPES.get().remove(this);
+            workspace.close();
+        }
+    }
+}
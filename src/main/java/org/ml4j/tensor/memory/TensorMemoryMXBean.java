@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.memory;
+
+import java.util.Map;
+
+/**
+ * JMX view of the TensorMemoryTracker, registered as "org.ml4j.tensor:type=TensorMemory".
+ *
+ * @author Michael Lavelle
+ */
+public interface TensorMemoryMXBean {
+
+    Map<String, Long> getLiveTensorsByBackend();
+
+    Map<String, Long> getLiveBytesByBackend();
+
+    Map<String, Long> getAllocatedTensorsByBackend();
+
+    Map<String, Long> getUnclosedTensorsByBackend();
+
+    Map<String, Long> getLiveTensorsByRegistry();
+
+    Map<String, Long> getLiveBytesByRegistry();
+
+    Map<String, Long> getUnclosedTensorsBySite();
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.memory;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Point-in-time copy of the TensorMemoryTracker counters.
+ *
+ * @author Michael Lavelle
+ */
+public final class TensorMemorySnapshot {
+
+    private final Map<String, Stats> byBackend;
+    private final Map<String, Stats> byRegistry;
+    private final Map<String, Long> unclosedBySite;
+
+    TensorMemorySnapshot(Map<String, Stats> byBackend, Map<String, Stats> byRegistry, Map<String, Long> unclosedBySite) {
+        this.byBackend = Collections.unmodifiableMap(byBackend);
+        this.byRegistry = Collections.unmodifiableMap(byRegistry);
+        this.unclosedBySite = Collections.unmodifiableMap(unclosedBySite);
+    }
+
+    /**
+     * @return The D-level tensors (NDArrays, INDArrays and Matrices), keyed by backend name.
+     */
+    public Map<String, Stats> getByBackend() {
+        return byBackend;
+    }
+
+    /**
+     * @return The autograd values, keyed by the AutogradValueRegistry they were created with.
+     */
+    public Map<String, Stats> getByRegistry() {
+        return byRegistry;
+    }
+
+    /**
+     * @return The number of unclosed tensors reclaimed by the garbage collector, keyed by the sampled
+     * creation site.
+     */
+    public Map<String, Long> getUnclosedBySite() {
+        return unclosedBySite;
+    }
+
+    @Override
+    public String toString() {
+        return "TensorMemorySnapshot{byBackend=" + byBackend + ", byRegistry=" + byRegistry + ", unclosedBySite=" + unclosedBySite.size() + " sites}";
+    }
+
+    public static final class Stats {
+
+        private final long liveTensors;
+        private final long liveBytes;
+        private final long allocatedTensors;
+        private final long allocatedBytes;
+        private final long unclosedTensors;
+
+        Stats(long liveTensors, long liveBytes, long allocatedTensors, long allocatedBytes, long unclosedTensors) {
+            this.liveTensors = liveTensors;
+            this.liveBytes = liveBytes;
+            this.allocatedTensors = allocatedTensors;
+            this.allocatedBytes = allocatedBytes;
+            this.unclosedTensors = unclosedTensors;
+        }
+
+        public long getLiveTensors() {
+            return liveTensors;
+        }
+
+        public long getLiveBytes() {
+            return liveBytes;
+        }
+
+        public long getAllocatedTensors() {
+            return allocatedTensors;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getUnclosedTensors() {
+            return unclosedTensors;
+        }
+
+        @Override
+        public String toString() {
+            return "{live=" + liveTensors + ", liveBytes=" + liveBytes + ", allocated=" + allocatedTensors
+                    + ", allocatedBytes=" + allocatedBytes + ", unclosed=" + unclosedTensors + "}";
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.memory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Optional accounting of live tensors and the bytes they hold, per backend and per
+ * AutogradValueRegistry, with leak detection for tensors reclaimed by the garbage collector
+ * without having been closed.
+ *
+ * Tracking is disabled by default, and is enabled with -Dml4j.tensor.memory.tracking=true or
+ * setEnabled(true).  Creation sites of one in every N allocations are recorded when
+ * -Dml4j.tensor.memory.stackSampling=N is set, so that unclosed tensors can be attributed
+ * to the code which created them.  When enabled, the counters are also exposed over JMX
+ * as "org.ml4j.tensor:type=TensorMemory".
+ *
+ * @author Michael Lavelle
+ */
+public final class TensorMemoryTracker {
+
+    public static final String ENABLED_PROPERTY = "ml4j.tensor.memory.tracking";
+    public static final String STACK_SAMPLING_PROPERTY = "ml4j.tensor.memory.stackSampling";
+    public static final String OBJECT_NAME = "org.ml4j.tensor:type=TensorMemory";
+
+    public static final String DJL = "DJL";
+    public static final String DL4J = "DL4J";
+    public static final String ML4J = "ML4J";
+
+    private static final int MAX_SITE_FRAMES = 6;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private static final ConcurrentMap<String, Counters> BACKENDS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Counters> REGISTRIES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongAdder> UNCLOSED_SITES = new ConcurrentHashMap<>();
+    private static final AtomicLong ALLOCATIONS = new AtomicLong();
+
+    private static volatile boolean enabled;
+    private static volatile int stackSampling = Integer.getInteger(STACK_SAMPLING_PROPERTY, 0);
+    private static boolean registered;
+
+    static {
+        setEnabled(Boolean.getBoolean(ENABLED_PROPERTY));
+    }
+
+    private TensorMemoryTracker() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static synchronized void setEnabled(boolean enabled) {
+        TensorMemoryTracker.enabled = enabled;
+        if (enabled && !registered) {
+            registered = registerMXBean();
+        }
+    }
+
+    /**
+     * @param stackSampling Record the creation site of one in every stackSampling allocations, or
+     *                      none if zero.
+     */
+    public static void setStackSampling(int stackSampling) {
+        TensorMemoryTracker.stackSampling = stackSampling;
+    }
+
+    /**
+     * Registers a D-level tensor allocation.
+     *
+     * @param tensor            The tensor owning the memory - it must not be reachable from freedWithoutClose.
+     * @param backend           The backend name.
+     * @param bytes             The number of bytes held.
+     * @param freedWithoutClose Whether the memory has been freed by other means by the time the tensor
+     *                          is reclaimed, eg. by a closed NDManager or by the garbage collector.
+     * @return The allocation to release when the tensor is closed, or null if tracking is disabled.
+     */
+    public static TrackedAllocation track(Object tensor, String backend, long bytes, BooleanSupplier freedWithoutClose) {
+        if (!enabled) {
+            return null;
+        }
+        return register(tensor, new TrackedAllocation(bytes, sampleSite(), freedWithoutClose, counters(BACKENDS, backend)));
+    }
+
+    /**
+     * Registers an autograd value against the registry it was created with.  Values are released
+     * when they are reclaimed by the garbage collector.
+     */
+    public static TrackedAllocation trackValue(Object value, Object registry, long bytes) {
+        if (!enabled) {
+            return null;
+        }
+        return register(value, new TrackedAllocation(bytes, null, () -> true, counters(REGISTRIES, String.valueOf(registry))));
+    }
+
+    private static TrackedAllocation register(Object owner, TrackedAllocation allocation) {
+        allocation.setCleanable(CLEANER.register(owner, allocation::reclaimed));
+        return allocation;
+    }
+
+    public static TensorMemorySnapshot snapshot() {
+        Map<String, Long> sites = new TreeMap<>();
+        UNCLOSED_SITES.forEach((site, count) -> sites.put(site, count.sum()));
+        return new TensorMemorySnapshot(stats(BACKENDS), stats(REGISTRIES), sites);
+    }
+
+    /**
+     * Clears all counters - tensors allocated before the reset are no longer accounted for.
+     */
+    public static void reset() {
+        BACKENDS.clear();
+        REGISTRIES.clear();
+        UNCLOSED_SITES.clear();
+    }
+
+    static void unclosedAt(String site) {
+        UNCLOSED_SITES.computeIfAbsent(site, s -> new LongAdder()).increment();
+    }
+
+    private static Counters counters(ConcurrentMap<String, Counters> counters, String key) {
+        return counters.computeIfAbsent(key, k -> new Counters());
+    }
+
+    private static Map<String, TensorMemorySnapshot.Stats> stats(ConcurrentMap<String, Counters> counters) {
+        Map<String, TensorMemorySnapshot.Stats> stats = new TreeMap<>();
+        counters.forEach((key, c) -> stats.put(key, c.stats()));
+        return stats;
+    }
+
+    private static String sampleSite() {
+        int sampling = stackSampling;
+        if (sampling <= 0 || ALLOCATIONS.incrementAndGet() % sampling != 0) {
+            return null;
+        }
+        List<String> frames = new ArrayList<>();
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            if (!element.getClassName().startsWith(TensorMemoryTracker.class.getPackageName())) {
+                frames.add(element.toString());
+                if (frames.size() == MAX_SITE_FRAMES) {
+                    break;
+                }
+            }
+        }
+        return String.join(" <- ", frames);
+    }
+
+    private static boolean registerMXBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new TensorMemory(), name);
+            }
+            return true;
+        } catch (JMException | SecurityException e) {
+            return false;
+        }
+    }
+
+    static final class Counters {
+
+        private final LongAdder liveTensors = new LongAdder();
+        private final LongAdder liveBytes = new LongAdder();
+        private final LongAdder allocatedTensors = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder unclosedTensors = new LongAdder();
+
+        void allocated(long bytes) {
+            liveTensors.increment();
+            liveBytes.add(bytes);
+            allocatedTensors.increment();
+            allocatedBytes.add(bytes);
+        }
+
+        void released(long bytes) {
+            liveTensors.decrement();
+            liveBytes.add(-bytes);
+        }
+
+        void unclosed() {
+            unclosedTensors.increment();
+        }
+
+        TensorMemorySnapshot.Stats stats() {
+            return new TensorMemorySnapshot.Stats(liveTensors.sum(), liveBytes.sum(), allocatedTensors.sum(),
+                    allocatedBytes.sum(), unclosedTensors.sum());
+        }
+    }
+
+    private static final class TensorMemory implements TensorMemoryMXBean {
+
+        private static Map<String, Long> map(Map<String, TensorMemorySnapshot.Stats> stats, Function<TensorMemorySnapshot.Stats, Long> value) {
+            Map<String, Long> result = new TreeMap<>();
+            stats.forEach((key, s) -> result.put(key, value.apply(s)));
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getLiveTensorsByBackend() {
+            return map(snapshot().getByBackend(), TensorMemorySnapshot.Stats::getLiveTensors);
+        }
+
+        @Override
+        public Map<String, Long> getLiveBytesByBackend() {
+            return map(snapshot().getByBackend(), TensorMemorySnapshot.Stats::getLiveBytes);
+        }
+
+        @Override
+        public Map<String, Long> getAllocatedTensorsByBackend() {
+            return map(snapshot().getByBackend(), TensorMemorySnapshot.Stats::getAllocatedTensors);
+        }
+
+        @Override
+        public Map<String, Long> getUnclosedTensorsByBackend() {
+            return map(snapshot().getByBackend(), TensorMemorySnapshot.Stats::getUnclosedTensors);
+        }
+
+        @Override
+        public Map<String, Long> getLiveTensorsByRegistry() {
+            return map(snapshot().getByRegistry(), TensorMemorySnapshot.Stats::getLiveTensors);
+        }
+
+        @Override
+        public Map<String, Long> getLiveBytesByRegistry() {
+            return map(snapshot().getByRegistry(), TensorMemorySnapshot.Stats::getLiveBytes);
+        }
+
+        @Override
+        public Map<String, Long> getUnclosedTensorsBySite() {
+            return snapshot().getUnclosedBySite();
+        }
+    }
+}
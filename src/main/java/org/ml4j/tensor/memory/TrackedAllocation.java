@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.memory;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Handle on a single tensor allocation registered with the TensorMemoryTracker.
+ *
+ * The allocation is released either explicitly, when the owning tensor is closed, or when the owning
+ * tensor is garbage collected - in which case it is reported as unclosed unless its memory had
+ * already been freed by other means.
+ *
+ * @author Michael Lavelle
+ */
+public final class TrackedAllocation {
+
+    private final TensorMemoryTracker.Counters[] counters;
+    private final long bytes;
+    private final String site;
+    private final BooleanSupplier freedWithoutClose;
+    private final AtomicBoolean released = new AtomicBoolean();
+    private Cleaner.Cleanable cleanable;
+
+    TrackedAllocation(long bytes, String site, BooleanSupplier freedWithoutClose, TensorMemoryTracker.Counters... counters) {
+        this.counters = counters;
+        this.bytes = bytes;
+        this.site = site;
+        this.freedWithoutClose = freedWithoutClose;
+        for (TensorMemoryTracker.Counters c : counters) {
+            c.allocated(bytes);
+        }
+    }
+
+    void setCleanable(Cleaner.Cleanable cleanable) {
+        this.cleanable = cleanable;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Marks the allocation as released by an explicit close of its tensor.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            for (TensorMemoryTracker.Counters c : counters) {
+                c.released(bytes);
+            }
+            if (cleanable != null) {
+                cleanable.clean();
+            }
+        }
+    }
+
+    /**
+     * Invoked by the cleaner once the owning tensor has become unreachable.
+     */
+    void reclaimed() {
+        if (released.compareAndSet(false, true)) {
+            boolean unclosed = freedWithoutClose == null || !freedWithoutClose.getAsBoolean();
+            for (TensorMemoryTracker.Counters c : counters) {
+                c.released(bytes);
+                if (unclosed) {
+                    c.unclosed();
+                }
+            }
+            if (unclosed && site != null) {
+                TensorMemoryTracker.unclosedAt(site);
+            }
+        }
+    }
+}
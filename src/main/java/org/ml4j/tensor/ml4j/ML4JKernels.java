@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.ml4j;
+
+/**
+ * Bulk elementwise kernels and reductions over the row-by-row float arrays backing ML4J matrices.
+ *
+ * Unary and binary kernels read from their source arrays and write to dst, which may be one of the
+ * sources for in-place operation.
+ *
+ * The SIMD implementation built on jdk.incubator.vector is used when it has been compiled in (on
+ * JDK 16+) and the module is resolved at runtime, eg. with --add-modules jdk.incubator.vector.
+ * Otherwise, or with -Dml4j.tensor.kernels=scalar, the scalar implementation is used.
+ *
+ * @author Michael Lavelle
+ */
+interface ML4JKernels {
+
+    String KERNELS_PROPERTY = "ml4j.tensor.kernels";
+
+    ML4JKernels INSTANCE = select();
+
+    void relu(float[] src, float[] dst);
+
+    void sigmoid(float[] src, float[] dst);
+
+    void neg(float[] src, float[] dst);
+
+    void exp(float[] src, float[] dst);
+
+    void log(float[] src, float[] dst);
+
+    void gt(float[] src, float[] dst, float value);
+
+    void gte(float[] src, float[] dst, float value);
+
+    void fill(float[] dst, float value);
+
+    void add(float[] first, float[] second, float[] dst);
+
+    void sub(float[] first, float[] second, float[] dst);
+
+    void mul(float[] first, float[] second, float[] dst);
+
+    void div(float[] first, float[] second, float[] dst);
+
+    /**
+     * @param gradient The gradient of the relu output.
+     * @param input    The relu input.
+     * @param dst      The gradient where the input is positive, and zero elsewhere.
+     */
+    void reluBackward(float[] gradient, float[] input, float[] dst);
+
+    /**
+     * @param gradient The gradient of the sigmoid output.
+     * @param output   The sigmoid output.
+     * @param dst      The gradient multiplied by output * (1 - output).
+     */
+    void sigmoidBackward(float[] gradient, float[] output, float[] dst);
+
+    float sum(float[] src);
+
+    float sumOfSquares(float[] src);
+
+    /**
+     * @param src  The row-by-row data of a rows x columns matrix.
+     * @param dst  The columns sums, of length columns.
+     */
+    void columnSums(float[] src, int rows, int columns, float[] dst);
+
+    /**
+     * @param src  The row-by-row data of a rows x columns matrix.
+     * @param dst  The row sums, of length rows.
+     */
+    void rowSums(float[] src, int rows, int columns, float[] dst);
+
+    /**
+     * An elementwise binary kernel.
+     */
+    @FunctionalInterface
+    interface Binary {
+
+        void apply(float[] first, float[] second, float[] dst);
+    }
+
+    private static ML4JKernels select() {
+        if (!"scalar".equals(System.getProperty(KERNELS_PROPERTY))) {
+            try {
+                return (ML4JKernels) Class.forName(ML4JKernels.class.getPackageName() + ".VectorML4JKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Not compiled for JDK 16+, or jdk.incubator.vector is not resolved - fall back to scalar loops.
+            }
+        }
+        return new ScalarML4JKernels();
+    }
+}
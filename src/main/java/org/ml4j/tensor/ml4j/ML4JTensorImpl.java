@@ -76,45 +76,6 @@ public class ML4JTensorImpl extends DifferentiableWrappedTensorOperations<ML4JTe
 		name_(properties.getName());
 	}
 
-	@Override
-	protected ML4JTensor getSub(ML4JTensor other, Size size, float scale) {
-		if (scale == 1) {
-			return other;
-		} else {
-			boolean scalar = size.dimensions().length == 0;
-			int div = (int) Math.sqrt(scale);
-			int[] dims = other.size().dimensions();
-			int prod = 1;
-			int[] newDims = new int[dims.length];
-			for (int i = 0; i < newDims.length; i++) {
-				newDims[i] = dims[i] /div;
-				prod = prod * newDims[i];
-			}
-			float[] oldData = other.getDataAsFloatArray();
-			float[] data = new float[prod];
-			int ind = 0;
-			int newInd = 0;
-			for (int i = 0; i < dims.length; i++) {
-				for (int j = 0; j < dims[i]; j++) {
-					if (j < newDims[i]) {
-						if (newInd < data.length && ind < oldData.length) {
-							data[newInd] = oldData[ind];
-						}
-						newInd++;
-
-					}
-					ind++;
-				}
-			}
-
-			Matrix matrixOld = other.data().get().getMatrix();
-			Matrix matrix = context.getMatrixFactory().createMatrixFromRowsByRowsArray(matrixOld.getRows() / (int)div, matrixOld.getColumns() / div, data);
-			Size s = scalar ? new Size() : new Size(newDims);
-			ML4JTensorOperations ops = new ML4JTensorOperationsImpl(context, matrix, s);
-			return new ML4JTensorImpl(context, () -> ops, new AutogradValueProperties<Size>().setContext(s).setRegistry(other.properties().getRegistry()).setRequires_grad(requires_grad()).setCreate_graph(create_graph()));
-		}
-	}
-
 	@Override
 	public ML4JTensor getTensor(int[]... ranges) {
 		throw new UnsupportedOperationException();
@@ -11,18 +11,29 @@ import org.ml4j.nn.neurons.*;
 import org.ml4j.nn.neurons.format.ImageNeuronsActivationFormat;
 import org.ml4j.nn.neurons.format.NeuronsActivationFormat;
 import org.ml4j.tensor.djl.DJLTensorOperations;
+import org.ml4j.tensor.memory.TensorMemoryTracker;
+import org.ml4j.tensor.memory.TrackedAllocation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
 public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatable<ML4JTensorOperations, Size, ML4JTensorOperations> {
 
+	private static final ML4JKernels KERNELS = ML4JKernels.INSTANCE;
+
 	private MatrixFactory matrixFactory;
 	private DirectedComponentsContext directedComponentsContext;
 	private Matrix matrix;
 	private Size size;
+	private int version;
+	private TrackedAllocation allocation;
 
 	public ML4JTensorOperationsImpl(DirectedComponentsContext directedComponentsContext, Matrix matrix, Size size) {
 		this.matrixFactory = directedComponentsContext.getMatrixFactory();
@@ -32,6 +43,7 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 		if (matrix.getRows() == 0 || matrix.getColumns() ==0) {
 			throw new IllegalArgumentException(matrix.getRows() + ":" + matrix.getColumns());
 		}
+		trackAllocation();
 	}
 
 	public ML4JTensorOperationsImpl(DirectedComponentsContext directedComponentsContext, DJLTensorOperations other) {
@@ -46,6 +58,7 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 		if (matrix.getRows() == 0 || matrix.getColumns() ==0) {
 			throw new IllegalArgumentException(matrix.getRows() + ":" + matrix.getColumns());
 		}
+		trackAllocation();
 	}
 	
 	public ML4JTensorOperationsImpl(DirectedComponentsContext directedComponentsContext, NeuronsActivation neuronsActivation) {
@@ -58,8 +71,16 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 		}
 		this.size = NeuronsActivationSize.getSize(neuronsActivation);
 
+		trackAllocation();
 	}
 	
+	private void trackAllocation() {
+		if (TensorMemoryTracker.isEnabled()) {
+			// Matrices are reclaimed by the garbage collector, so they are never reported as unclosed.
+			allocation = TensorMemoryTracker.track(this, TensorMemoryTracker.ML4J, (long) matrix.getLength() * Float.BYTES, () -> true);
+		}
+	}
+
 	public Matrix getMatrix() {
 		return matrix;
 	}
@@ -90,12 +111,79 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 	}
 	
 	public ML4JTensorOperations norm() {
-		EditableMatrix norm = matrix.dup().asEditableMatrix();
-		for (int i = 0; i < norm.getLength(); i++) {
-			norm.put(i, (float) Math.sqrt(norm.get(i) * norm.get(i)));
+		float norm = (float) Math.sqrt(KERNELS.sumOfSquares(matrix.getRowByRowArray()));
+		return toML4JTensorOperations(matrixFactory.createOnes(1, 1).mul(norm), new Size(1, 1));
+	}
+
+	/**
+	 * Whether the array returned by getRowByRowArray() is the matrix's own storage rather than a copy, in
+	 * which case in-place kernels can write to it directly.  This is checked per instance, as a matrix
+	 * implementation may return its storage for some instances and a copy for others.
+	 */
+	private static boolean sharesRowByRowStorage(Matrix matrix, float[] rowByRowArray) {
+		return matrix.getRowByRowArray() == rowByRowArray;
+	}
+
+	private Matrix createMatrix(float[] rowByRowData) {
+		return matrixFactory.createMatrixFromRowsByRowsArray(matrix.getRows(), matrix.getColumns(), rowByRowData);
+	}
+
+	/**
+	 * Applies the kernel into a single new matrix.
+	 */
+	private ML4JTensorOperations map(BiConsumer<float[], float[]> kernel) {
+		float[] data = matrix.getRowByRowArray();
+		float[] result = sharesRowByRowStorage(matrix, data) ? new float[data.length] : data;
+		kernel.accept(data, result);
+		return toML4JTensorOperations(createMatrix(result), size);
+	}
+
+	/**
+	 * Applies the kernel in place, directly on the matrix storage if possible, and otherwise writes the
+	 * result back into the matrix so that other holders of it see the update.
+	 */
+	private ML4JTensorOperations map_(BiConsumer<float[], float[]> kernel) {
+		float[] data = matrix.getRowByRowArray();
+		kernel.accept(data, data);
+		if (!sharesRowByRowStorage(matrix, data)) {
+			EditableMatrix editable = matrix.asEditableMatrix();
+			int columns = matrix.getColumns();
+			for (int i = 0; i < data.length; i++) {
+				editable.put(i / columns, i % columns, data[i]);
+			}
+		}
+		return this;
+	}
+
+	private boolean hasSameShape(Matrix other) {
+		return matrix.getRows() == other.getRows() && matrix.getColumns() == other.getColumns();
+	}
+
+	/**
+	 * Applies the elementwise binary kernel to this matrix and another of the same shape into a new matrix,
+	 * or defers to the matrix operation otherwise, eg. for scalar matrices.
+	 */
+	private Matrix zip(Matrix other, ML4JKernels.Binary kernel, Supplier<Matrix> matrixOp) {
+		if (!hasSameShape(other)) {
+			return matrixOp.get();
+		}
+		float[] result = new float[matrix.getLength()];
+		kernel.apply(matrix.getRowByRowArray(), other.getRowByRowArray(), result);
+		return createMatrix(result);
+	}
+
+	/**
+	 * Applies the elementwise binary kernel to this matrix and another of the same shape in place,
+	 * or defers to the matrix operation otherwise.
+	 */
+	private void zip_(Matrix other, ML4JKernels.Binary kernel, Runnable matrixOp) {
+		if (!hasSameShape(other)) {
+			matrixOp.run();
+		} else {
+			map_((src, dst) -> kernel.apply(src, other.getRowByRowArray(), dst));
 		}
-		return toML4JTensorOperations(norm, size);
 	}
+
 	@Override
 	public ML4JTensorOperations add(float value) {
 		return toML4JTensorOperations(matrix.add(value), size);
@@ -108,80 +196,77 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 
 	@Override
 	public ML4JTensorOperations sub_(ML4JTensorOperations other) {
+		version++;
 		return apply_(other, m -> m.subiColumnVector(other.getMatrix()),
-				m -> m.subiRowVector(other.getMatrix()), m -> m.subi(other.getMatrix()));
+				m -> m.subiRowVector(other.getMatrix()), m -> zip_(other.getMatrix(), KERNELS::sub, () -> m.subi(other.getMatrix())));
 	}
 
 	@Override
 	public ML4JTensorOperations neg() {
-		EditableMatrix r = matrix.dup().asEditableMatrix();
-		for (int i = 0; i < r.getLength(); i++) {
-			r.put(i, -matrix.get(i));
-		}
-		return toML4JTensorOperations(r, size());
+		return map(KERNELS::neg);
+	}
+
+	@Override
+	public ML4JTensorOperations neg_() {
+		version++;
+		return map_(KERNELS::neg);
 	}
 
 	@Override
 	public ML4JTensorOperations gt(float value) {
-		EditableMatrix r = matrix.dup().asEditableMatrix();
-		for (int i = 0; i < r.getLength(); i++) {
-			if (r.get(i) <= 0) {
-				r.put(i, 0);
-			} else {
-				r.put(i, 1);
-			}
-		}
-		return toML4JTensorOperations(r, size());
+		return map((src, dst) -> KERNELS.gt(src, dst, value));
 	}
 
 	@Override
 	public ML4JTensorOperations gte(float value) {
-		throw new UnsupportedOperationException();
+		return map((src, dst) -> KERNELS.gte(src, dst, value));
 	}
 
 	@Override
 	public ML4JTensorOperations mul_(ML4JTensorOperations other) {
+		version++;
 		return apply_(other, m -> m.muliColumnVector(other.getMatrix()),
-				m -> m.muliRowVector(other.getMatrix()), m -> m.muli(other.getMatrix()));
+				m -> m.muliRowVector(other.getMatrix()), m -> zip_(other.getMatrix(), KERNELS::mul, () -> m.muli(other.getMatrix())));
 	}
 
 
 	@Override
 	public ML4JTensorOperations mul_(float v) {
-		// TODO
-		matrix = matrix.mul(v);
+		version++;
+		matrix.asEditableMatrix().muli(v);
 		return this;
 	}
 
 	@Override
 	public ML4JTensorOperations add_(float v) {
-		// TODO
-		matrix = matrix.add(v);
+		version++;
+		matrix.asEditableMatrix().addi(v);
 		return this;
 	}
 
 	@Override
 	public ML4JTensorOperations div_(float v) {
-		// TODO
-		matrix = matrix.div(v);
+		version++;
+		matrix.asEditableMatrix().divi(v);
 		return this;
 	}
 
 	@Override
 	public ML4JTensorOperations sub_(float v) {
-		// TODO
-		matrix = matrix.sub(v);
+		version++;
+		matrix.asEditableMatrix().subi(v);
 		return this;
 	}
 
 	@Override
 	public ML4JTensorOperations fill_(float value) {
-		throw new UnsupportedOperationException();
+		version++;
+		return map_((src, dst) -> KERNELS.fill(dst, value));
 	}
 
 	@Override
 	public ML4JTensorOperations zero_() {
-		throw new UnsupportedOperationException();
+		return fill_(0);
 	}
 
 	@Override
@@ -189,16 +274,29 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public ML4JTensorOperations uniform_(float from, float to) {
+		version++;
+		return map_((src, dst) -> {
+			Random random = ThreadLocalRandom.current();
+			for (int i = 0; i < dst.length; i++) {
+				dst[i] = from + (to - from) * random.nextFloat();
+			}
+		});
+	}
+
 	@Override
 	public ML4JTensorOperations add_(ML4JTensorOperations other) {
+		version++;
 		return apply_(other, m -> m.addiColumnVector(other.getMatrix()),
-				m -> m.addiRowVector(other.getMatrix()), m -> m.addi(other.getMatrix()));
+				m -> m.addiRowVector(other.getMatrix()), m -> zip_(other.getMatrix(), KERNELS::add, () -> m.addi(other.getMatrix())));
 	}
 
 	@Override
 	public ML4JTensorOperations div_(ML4JTensorOperations other) {
+		version++;
 		return apply_(other, m -> m.diviColumnVector(other.getMatrix()),
-				m -> m.diviRowVector(other.getMatrix()), m -> m.divi(other.getMatrix()));
+				m -> m.diviRowVector(other.getMatrix()), m -> zip_(other.getMatrix(), KERNELS::div, () -> m.divi(other.getMatrix())));
 	}
 	
 	private ML4JTensorOperations apply_(ML4JTensorOperations other, Consumer<EditableMatrix> columnVectorOp,
@@ -220,10 +318,20 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 		return toML4JTensorOperations(matrix.mmul(other.getMatrix()), size().matmul(other.size()));
 	}
 
+	@Override
+	public ML4JTensorOperations matmul(ML4JTensorOperations other, boolean transposeThis, boolean transposeOther) {
+		// The Matrix API has no transposed multiply, so transposed operands are still copied here.
+		Matrix first = transposeThis ? matrix.transpose() : matrix;
+		Matrix second = transposeOther ? other.getMatrix().transpose() : other.getMatrix();
+		Size firstSize = transposeThis ? size.t() : size;
+		Size secondSize = transposeOther ? other.size().t() : other.size();
+		return toML4JTensorOperations(first.mmul(second), firstSize.matmul(secondSize));
+	}
+
 	@Override
 	public ML4JTensorOperations mul(ML4JTensorOperations other) {
 		return apply(other, m -> m.mulColumnVector(other.getMatrix()),
-				m -> m.mulRowVector(other.getMatrix()), m -> m.mul(other.getMatrix()));
+				m -> m.mulRowVector(other.getMatrix()), m -> zip(other.getMatrix(), KERNELS::mul, () -> m.mul(other.getMatrix())));
 	}
 
 	@Override
@@ -234,7 +342,7 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 	@Override
 	public ML4JTensorOperations add(ML4JTensorOperations other) {
 		return apply(other, m -> m.addColumnVector(other.getMatrix()),
-				m -> m.addRowVector(other.getMatrix()), m -> m.add(other.getMatrix()));
+				m -> m.addRowVector(other.getMatrix()), m -> zip(other.getMatrix(), KERNELS::add, () -> m.add(other.getMatrix())));
 	}
 	
 	private ML4JTensorOperations apply(ML4JTensorOperations other, UnaryOperator<Matrix> columnVectorOp,
@@ -260,7 +368,7 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 	@Override
 	public ML4JTensorOperations div(ML4JTensorOperations other) {
 		return apply(other, m -> m.divColumnVector(other.getMatrix()),
-				m -> m.divRowVector(other.getMatrix()), m -> m.div(other.getMatrix()));
+				m -> m.divRowVector(other.getMatrix()), m -> zip(other.getMatrix(), KERNELS::div, () -> m.div(other.getMatrix())));
 	}
 
 	@Override
@@ -272,7 +380,7 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 	@Override
 	public ML4JTensorOperations sub(ML4JTensorOperations other) {
 		return apply(other, m -> m.subColumnVector(other.getMatrix()),
-				m -> m.subRowVector(other.getMatrix()), m -> m.sub(other.getMatrix()));
+				m -> m.subRowVector(other.getMatrix()), m -> zip(other.getMatrix(), KERNELS::sub, () -> m.sub(other.getMatrix())));
 	}
 	
 	@Override
@@ -341,6 +449,7 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 
 	@Override
 	public ML4JTensorOperations resize_(Size size) {
+		version++;
 		if (this.size.numel() != size.numel()) {
 			throw new IllegalArgumentException("Number of elements do not match");
 		}
@@ -419,15 +528,94 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 
 	@Override
 	public ML4JTensorOperations mean() {
-		return toML4JTensorOperations(matrixFactory.createOnes(1, 1).mul(matrix.sum() / matrix.getLength()), new Size(1, 1));
+		return toML4JTensorOperations(sumMatrix().div(matrix.getLength()), new Size(1, 1));
 	}
 	
 	@Override
 	public ML4JTensorOperations sum(int... dims) {
-		if (dims.length > 0) {
+		if (dims.length == 0) {
+			return toML4JTensorOperations(sumMatrix(), new Size(1, 1));
+		}
+		if (dims.length != 1 || size.dimensions().length != 2) {
 			throw new UnsupportedOperationException();
 		}
-		return toML4JTensorOperations(matrixFactory.createOnes(1, 1).mul(matrix.sum()), new Size(1, 1));
+		int dim = dims[0] < 0 ? dims[0] + 2 : dims[0];
+		if (dim == 0) {
+			return toML4JTensorOperations(columnSumsMatrix(), new Size(matrix.getColumns()));
+		} else {
+			return toML4JTensorOperations(rowSumsMatrix(), new Size(matrix.getRows()));
+		}
+	}
+
+	@Override
+	public ML4JTensorOperations sumToSize(Size size) {
+		int[] dims = size.dimensions();
+		boolean columnVector = dims.length >= 2 && dims[dims.length - 1] == 1;
+		if (size.numel() == matrix.getLength()) {
+			return toML4JTensorOperations(matrix, size);
+		} else if (size.numel() == 1) {
+			return toML4JTensorOperations(sumMatrix(), size);
+		} else if (!columnVector && size.numel() == matrix.getColumns()) {
+			return toML4JTensorOperations(columnSumsMatrix(), size);
+		} else if (size.numel() == matrix.getRows()) {
+			return toML4JTensorOperations(rowSumsMatrix(), size);
+		} else {
+			throw new UnsupportedOperationException("Cannot reduce " + this.size + " to " + size);
+		}
+	}
+
+	@Override
+	public ML4JTensorOperations expand(Size size) {
+		if (size.numel() == matrix.getLength()) {
+			return toML4JTensorOperations(matrix, size);
+		}
+		int[] dims = this.size.dimensions();
+		boolean columnVector = dims.length >= 2 && dims[dims.length - 1] == 1;
+		int rows = size.asMatrixSize().sizeComponents[0].numel();
+		int columns = size.asMatrixSize().sizeComponents[1].numel();
+		float[] src = matrix.getRowByRowArray();
+		float[] data = new float[rows * columns];
+		if (src.length == 1) {
+			KERNELS.fill(data, src[0]);
+		} else if (!columnVector && src.length == columns) {
+			for (int r = 0; r < rows; r++) {
+				System.arraycopy(src, 0, data, r * columns, columns);
+			}
+		} else if (src.length == rows) {
+			for (int r = 0; r < rows; r++) {
+				Arrays.fill(data, r * columns, (r + 1) * columns, src[r]);
+			}
+		} else {
+			throw new UnsupportedOperationException("Cannot expand " + this.size + " to " + size);
+		}
+		return toML4JTensorOperations(matrixFactory.createMatrixFromRowsByRowsArray(rows, columns, data), size);
+	}
+
+	@Override
+	public ML4JTensorOperations reluBackward(ML4JTensorOperations input) {
+		return toML4JTensorOperations(zip(input.getMatrix(), KERNELS::reluBackward, () -> matrix.mul(input.gt(0).getMatrix())), size);
+	}
+
+	@Override
+	public ML4JTensorOperations sigmoidBackward(ML4JTensorOperations output) {
+		return toML4JTensorOperations(zip(output.getMatrix(), KERNELS::sigmoidBackward,
+				() -> matrix.mul(output.getMatrix().mul(-1).add(1).mul(output.getMatrix()))), size);
+	}
+
+	private Matrix sumMatrix() {
+		return matrixFactory.createOnes(1, 1).mul(KERNELS.sum(matrix.getRowByRowArray()));
+	}
+
+	private Matrix columnSumsMatrix() {
+		float[] sums = new float[matrix.getColumns()];
+		KERNELS.columnSums(matrix.getRowByRowArray(), matrix.getRows(), matrix.getColumns(), sums);
+		return matrixFactory.createMatrixFromRowsByRowsArray(1, sums.length, sums);
+	}
+
+	private Matrix rowSumsMatrix() {
+		float[] sums = new float[matrix.getRows()];
+		KERNELS.rowSums(matrix.getRowByRowArray(), matrix.getRows(), matrix.getColumns(), sums);
+		return matrixFactory.createMatrixFromRowsByRowsArray(sums.length, 1, sums);
 	}
 
 	@Override
@@ -489,11 +677,13 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 
 	@Override
 	public void put(int index, float value) {
+		version++;
 		matrix.asEditableMatrix().put(index, value);
 	}
 
 	@Override
 	public void put(float value, int... indexes) {
+		version++;
 		if (indexes.length != 2) {
 			throw new UnsupportedOperationException();
 		} else {
@@ -527,6 +717,7 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 
 	@Override
 	public void performInlineOperation(Operation<ML4JTensorOperations, Size> operation) {
+		version++;
 		operation.apply(this);
 	}
 
@@ -546,7 +737,7 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 		if (size.dimensions().length != 2) {
 			throw new IllegalStateException("Tensor must be 2 dimensional");
 		}
-		return toML4JTensorOperations(matrix.columnSums(), new Size(1, size().get(1)));
+		return toML4JTensorOperations(columnSumsMatrix(), new Size(1, size().get(1)));
 	}
 	
 	@Override
@@ -554,12 +745,15 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 		if (size.dimensions().length != 2) {
 			throw new IllegalStateException("Tensor must be 2 dimensional");
 		}
-		return toML4JTensorOperations(matrix.rowSums(), new Size(size().get(0), 1));
+		return toML4JTensorOperations(rowSumsMatrix(), new Size(size().get(0), 1));
 	}
 
 	@Override
 	public void close() {
 		matrix.close();
+		if (allocation != null) {
+			allocation.release();
+		}
 	}
 
 	@Override
@@ -567,15 +761,20 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 		return false;
 	}
 
+	@Override
+	public int version() {
+		return version;
+	}
+
 	@Override
 	public ML4JTensorOperations relu() {
-		EditableMatrix r = matrix.dup().asEditableMatrix();
-		for (int i = 0; i < r.getLength(); i++) {
-			if (r.get(i) < 0) {
-				r.put(i, 0);
-			}
-		}
-		return toML4JTensorOperations(r, size());
+		return map(KERNELS::relu);
+	}
+
+	@Override
+	public ML4JTensorOperations relu_() {
+		version++;
+		return map_(KERNELS::relu);
 	}
 
 	@Override
@@ -588,14 +787,20 @@ public class ML4JTensorOperationsImpl implements ML4JTensorOperations, Operatabl
 		return toML4JTensorOperations(matrix.sigmoid(), size());
 	}
 
+	@Override
+	public ML4JTensorOperations sigmoid_() {
+		version++;
+		return map_(KERNELS::sigmoid);
+	}
+
 	@Override
 	public ML4JTensorOperations exp() {
-		throw new UnsupportedOperationException();
+		return map(KERNELS::exp);
 	}
 
 	@Override
 	public ML4JTensorOperations log() {
-		throw new UnsupportedOperationException();
+		return map(KERNELS::log);
 	}
 
 	@Override
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.ml4j;
+
+import java.util.Arrays;
+
+/**
+ * ML4JKernels implemented as plain loops, used when the Vector API is unavailable.
+ *
+ * @author Michael Lavelle
+ */
+class ScalarML4JKernels implements ML4JKernels {
+
+    @Override
+    public void relu(float[] src, float[] dst) {
+        for (int i = 0; i < src.length; i++) {
+            float v = src[i];
+            dst[i] = v > 0 ? v : 0;
+        }
+    }
+
+    @Override
+    public void sigmoid(float[] src, float[] dst) {
+        for (int i = 0; i < src.length; i++) {
+            dst[i] = 1f / (1f + (float) Math.exp(-src[i]));
+        }
+    }
+
+    @Override
+    public void neg(float[] src, float[] dst) {
+        for (int i = 0; i < src.length; i++) {
+            dst[i] = -src[i];
+        }
+    }
+
+    @Override
+    public void exp(float[] src, float[] dst) {
+        for (int i = 0; i < src.length; i++) {
+            dst[i] = (float) Math.exp(src[i]);
+        }
+    }
+
+    @Override
+    public void log(float[] src, float[] dst) {
+        for (int i = 0; i < src.length; i++) {
+            dst[i] = (float) Math.log(src[i]);
+        }
+    }
+
+    @Override
+    public void gt(float[] src, float[] dst, float value) {
+        for (int i = 0; i < src.length; i++) {
+            dst[i] = src[i] > value ? 1 : 0;
+        }
+    }
+
+    @Override
+    public void gte(float[] src, float[] dst, float value) {
+        for (int i = 0; i < src.length; i++) {
+            dst[i] = src[i] >= value ? 1 : 0;
+        }
+    }
+
+    @Override
+    public void fill(float[] dst, float value) {
+        Arrays.fill(dst, value);
+    }
+
+    @Override
+    public void add(float[] first, float[] second, float[] dst) {
+        for (int i = 0; i < first.length; i++) {
+            dst[i] = first[i] + second[i];
+        }
+    }
+
+    @Override
+    public void sub(float[] first, float[] second, float[] dst) {
+        for (int i = 0; i < first.length; i++) {
+            dst[i] = first[i] - second[i];
+        }
+    }
+
+    @Override
+    public void mul(float[] first, float[] second, float[] dst) {
+        for (int i = 0; i < first.length; i++) {
+            dst[i] = first[i] * second[i];
+        }
+    }
+
+    @Override
+    public void reluBackward(float[] gradient, float[] input, float[] dst) {
+        for (int i = 0; i < gradient.length; i++) {
+            dst[i] = input[i] > 0 ? gradient[i] : 0;
+        }
+    }
+
+    @Override
+    public void sigmoidBackward(float[] gradient, float[] output, float[] dst) {
+        for (int i = 0; i < gradient.length; i++) {
+            float y = output[i];
+            dst[i] = gradient[i] * y * (1 - y);
+        }
+    }
+
+    @Override
+    public void div(float[] first, float[] second, float[] dst) {
+        for (int i = 0; i < first.length; i++) {
+            dst[i] = first[i] / second[i];
+        }
+    }
+
+    @Override
+    public float sum(float[] src) {
+        float sum = 0;
+        for (int i = 0; i < src.length; i++) {
+            sum += src[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float sumOfSquares(float[] src) {
+        float sum = 0;
+        for (int i = 0; i < src.length; i++) {
+            sum += src[i] * src[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void columnSums(float[] src, int rows, int columns, float[] dst) {
+        Arrays.fill(dst, 0, columns, 0);
+        for (int r = 0; r < rows; r++) {
+            int offset = r * columns;
+            for (int c = 0; c < columns; c++) {
+                dst[c] += src[offset + c];
+            }
+        }
+    }
+
+    @Override
+    public void rowSums(float[] src, int rows, int columns, float[] dst) {
+        for (int r = 0; r < rows; r++) {
+            int offset = r * columns;
+            float sum = 0;
+            for (int c = 0; c < columns; c++) {
+                sum += src[offset + c];
+            }
+            dst[r] = sum;
+        }
+    }
+}
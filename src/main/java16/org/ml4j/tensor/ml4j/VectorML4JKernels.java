@@ -0,0 +1,232 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.ml4j;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * ML4JKernels implemented with jdk.incubator.vector, using the widest float species supported by
+ * the CPU.  Each kernel processes whole vectors up to the loop bound and finishes the tail with
+ * scalar code.
+ *
+ * Compiled only by the jdk16 profile, and loaded reflectively by ML4JKernels.
+ *
+ * @author Michael Lavelle
+ */
+final class VectorML4JKernels extends ScalarML4JKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void relu(float[] src, float[] dst) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(src.length); i < bound; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, src, i).max(0f).intoArray(dst, i);
+        }
+        for (; i < src.length; i++) {
+            float v = src[i];
+            dst[i] = v > 0 ? v : 0;
+        }
+    }
+
+    @Override
+    public void sigmoid(float[] src, float[] dst) {
+        FloatVector one = FloatVector.broadcast(SPECIES, 1f);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(src.length); i < bound; i += SPECIES.length()) {
+            FloatVector v = FloatVector.fromArray(SPECIES, src, i);
+            one.div(v.neg().lanewise(VectorOperators.EXP).add(one)).intoArray(dst, i);
+        }
+        for (; i < src.length; i++) {
+            dst[i] = 1f / (1f + (float) Math.exp(-src[i]));
+        }
+    }
+
+    @Override
+    public void neg(float[] src, float[] dst) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(src.length); i < bound; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, src, i).neg().intoArray(dst, i);
+        }
+        for (; i < src.length; i++) {
+            dst[i] = -src[i];
+        }
+    }
+
+    @Override
+    public void exp(float[] src, float[] dst) {
+        lanewise(src, dst, VectorOperators.EXP);
+    }
+
+    @Override
+    public void log(float[] src, float[] dst) {
+        lanewise(src, dst, VectorOperators.LOG);
+    }
+
+    private void lanewise(float[] src, float[] dst, VectorOperators.Unary op) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(src.length); i < bound; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, src, i).lanewise(op).intoArray(dst, i);
+        }
+        if (i < src.length) {
+            VectorMask<Float> tail = SPECIES.indexInRange(i, src.length);
+            FloatVector.fromArray(SPECIES, src, i, tail).lanewise(op).intoArray(dst, i, tail);
+        }
+    }
+
+    @Override
+    public void gt(float[] src, float[] dst, float value) {
+        compare(src, dst, VectorOperators.GT, value);
+    }
+
+    @Override
+    public void gte(float[] src, float[] dst, float value) {
+        compare(src, dst, VectorOperators.GE, value);
+    }
+
+    private void compare(float[] src, float[] dst, VectorOperators.Comparison comparison, float value) {
+        FloatVector zero = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(src.length); i < bound; i += SPECIES.length()) {
+            VectorMask<Float> mask = FloatVector.fromArray(SPECIES, src, i).compare(comparison, value);
+            zero.blend(1f, mask).intoArray(dst, i);
+        }
+        for (; i < src.length; i++) {
+            boolean result = comparison == VectorOperators.GT ? src[i] > value : src[i] >= value;
+            dst[i] = result ? 1 : 0;
+        }
+    }
+
+    @Override
+    public void add(float[] first, float[] second, float[] dst) {
+        binary(first, second, dst, VectorOperators.ADD);
+    }
+
+    @Override
+    public void sub(float[] first, float[] second, float[] dst) {
+        binary(first, second, dst, VectorOperators.SUB);
+    }
+
+    @Override
+    public void mul(float[] first, float[] second, float[] dst) {
+        binary(first, second, dst, VectorOperators.MUL);
+    }
+
+    @Override
+    public void div(float[] first, float[] second, float[] dst) {
+        binary(first, second, dst, VectorOperators.DIV);
+    }
+
+    @Override
+    public void reluBackward(float[] gradient, float[] input, float[] dst) {
+        FloatVector zero = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(gradient.length); i < bound; i += SPECIES.length()) {
+            VectorMask<Float> positive = FloatVector.fromArray(SPECIES, input, i).compare(VectorOperators.GT, 0f);
+            zero.blend(FloatVector.fromArray(SPECIES, gradient, i), positive).intoArray(dst, i);
+        }
+        for (; i < gradient.length; i++) {
+            dst[i] = input[i] > 0 ? gradient[i] : 0;
+        }
+    }
+
+    @Override
+    public void sigmoidBackward(float[] gradient, float[] output, float[] dst) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(gradient.length); i < bound; i += SPECIES.length()) {
+            FloatVector y = FloatVector.fromArray(SPECIES, output, i);
+            FloatVector.fromArray(SPECIES, gradient, i).mul(y).mul(y.neg().add(1f)).intoArray(dst, i);
+        }
+        for (; i < gradient.length; i++) {
+            float y = output[i];
+            dst[i] = gradient[i] * y * (1 - y);
+        }
+    }
+
+    private void binary(float[] first, float[] second, float[] dst, VectorOperators.Binary op) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(first.length); i < bound; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, first, i).lanewise(op, FloatVector.fromArray(SPECIES, second, i))
+                    .intoArray(dst, i);
+        }
+        if (i < first.length) {
+            VectorMask<Float> tail = SPECIES.indexInRange(i, first.length);
+            FloatVector.fromArray(SPECIES, first, i, tail).lanewise(op, FloatVector.fromArray(SPECIES, second, i, tail))
+                    .intoArray(dst, i, tail);
+        }
+    }
+
+    @Override
+    public float sum(float[] src) {
+        return sum(src, 0, src.length);
+    }
+
+    private float sum(float[] src, int offset, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            acc = acc.add(FloatVector.fromArray(SPECIES, src, offset + i));
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += src[offset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float sumOfSquares(float[] src) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(src.length); i < bound; i += SPECIES.length()) {
+            FloatVector v = FloatVector.fromArray(SPECIES, src, i);
+            acc = v.fma(v, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < src.length; i++) {
+            sum += src[i] * src[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void columnSums(float[] src, int rows, int columns, float[] dst) {
+        Arrays.fill(dst, 0, columns, 0);
+        int bound = SPECIES.loopBound(columns);
+        for (int r = 0; r < rows; r++) {
+            int offset = r * columns;
+            int c = 0;
+            for (; c < bound; c += SPECIES.length()) {
+                FloatVector.fromArray(SPECIES, dst, c).add(FloatVector.fromArray(SPECIES, src, offset + c))
+                        .intoArray(dst, c);
+            }
+            for (; c < columns; c++) {
+                dst[c] += src[offset + c];
+            }
+        }
+    }
+
+    @Override
+    public void rowSums(float[] src, int rows, int columns, float[] dst) {
+        for (int r = 0; r < rows; r++) {
+            dst[r] = sum(src, r * columns, columns);
+        }
+    }
+}
@@ -9,6 +9,9 @@ import org.ml4j.autograd.AutogradValueRegistry;
 import org.ml4j.autograd.BackwardConfig;
 import org.ml4j.autograd.node.Node;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -762,4 +765,312 @@ public abstract class AutogradTestBase<V extends Tensor<V, D>, D extends TensorO
             Assert.assertEquals(isNativeGradientExpected(), y.grad().isNativeGradient());
         }
     }
+
+    @Test
+    public void test_fused_elementwise_chain() {
+        var a = createRandomValue(true, 2, 2);
+        var b = createRandomValue(true, 2, 2);
+        var c = createRandomValue(true, 2, 2);
+
+        var a2 = createGradValue(a.data().get().cloneTensor(), true);
+        var b2 = createGradValue(b.data().get().cloneTensor(), true);
+        var c2 = createGradValue(c.data().get().cloneTensor(), true);
+
+        if (!isNativeGradientExpected()) {
+            for (var v : List.of(a, b, c, a2, b2, c2)) {
+                v.getGradNode().setDisableNativeGradient(true);
+            }
+        }
+
+        var unfused = a.mul(b).add(c).relu().sub(b).sigmoid().mul(2f);
+        var fused = a2.fuse().mul(b2).add(c2).relu().sub(b2).sigmoid().mul(2f).get();
+
+        assertArrayEqual(unfused.getDataAsFloatArray(), fused.getDataAsFloatArray(), 0.0001f);
+
+        unfused.backward(createOnesValue(false, 2, 2));
+        fused.backward(createOnesValue(false, 2, 2));
+
+        assertArrayEqual(a.grad().getDataAsFloatArray(), a2.grad().getDataAsFloatArray(), 0.0001f);
+        assertArrayEqual(b.grad().getDataAsFloatArray(), b2.grad().getDataAsFloatArray(), 0.0001f);
+        assertArrayEqual(c.grad().getDataAsFloatArray(), c2.grad().getDataAsFloatArray(), 0.0001f);
+    }
+
+    @Test
+    public void test_fused_unary_chain_recomputes_intermediates() {
+        var a = createRandomValue(true, 2, 2);
+        var a2 = createGradValue(a.data().get().cloneTensor(), true);
+
+        if (!isNativeGradientExpected()) {
+            a.getGradNode().setDisableNativeGradient(true);
+            a2.getGradNode().setDisableNativeGradient(true);
+        }
+
+        var unfused = a.sub(0.5f).relu().mul(3f).sigmoid();
+        var fused = a2.fuse().sub(0.5f).relu().mul(3f).sigmoid().get();
+
+        assertArrayEqual(unfused.getDataAsFloatArray(), fused.getDataAsFloatArray(), 0.0001f);
+
+        unfused.backward(createOnesValue(false, 2, 2));
+        fused.backward(createOnesValue(false, 2, 2));
+
+        assertArrayEqual(a.grad().getDataAsFloatArray(), a2.grad().getDataAsFloatArray(), 0.0001f);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_backward_rejects_output_modified_in_place() {
+        var a = createRandomValue(true, 2, 2);
+        a.getGradNode().setDisableNativeGradient(true);
+
+        var y = a.sigmoid();
+        y.mul_(2f);
+        y.backward(createOnesValue(false, 2, 2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_fused_backward_rejects_output_modified_in_place() {
+        var a = createRandomValue(true, 2, 2);
+        a.getGradNode().setDisableNativeGradient(true);
+
+        var y = a.fuse().relu().sigmoid().get();
+        y.mul_(2f);
+        y.backward(createOnesValue(false, 2, 2));
+    }
+
+    @Test
+    public void test_matmul_of_broadcast_compatible_operands() {
+        var a = createRandomValue(true, 1, 3);
+        var b = createRandomValue(true, 3, 1);
+
+        if (!isNativeGradientExpected()) {
+            a.getGradNode().setDisableNativeGradient(true);
+            b.getGradNode().setDisableNativeGradient(true);
+        }
+
+        var c = a.matmul(b);
+
+        Assert.assertEquals(new Size(1, 1).getDimensions(), c.size().getDimensions());
+
+        c.backward(createOnesValue(false, 1, 1));
+
+        Assert.assertEquals(new Size(1, 3).getDimensions(), a.grad().size().getDimensions());
+        Assert.assertEquals(new Size(3, 1).getDimensions(), b.grad().size().getDimensions());
+        assertArrayEqual(b.getDataAsFloatArray(), a.grad().getDataAsFloatArray(), 0.0001f);
+        assertArrayEqual(a.getDataAsFloatArray(), b.grad().getDataAsFloatArray(), 0.0001f);
+    }
+
+    @Test
+    public void test_broadcast_gradients_are_summed() {
+        var a = createRandomValue(true, 2, 3);
+        var rowBias = createRandomValue(true, 1, 3);
+        var columnScale = createRandomValue(true, 2, 1);
+
+        if (!isNativeGradientExpected()) {
+            for (var v : List.of(a, rowBias, columnScale)) {
+                v.getGradNode().setDisableNativeGradient(true);
+            }
+        }
+
+        var c = a.add(rowBias).mul(columnScale);
+
+        var g = createRandomValue(false, 2, 3);
+        c.backward(g);
+
+        float[] gradient = g.getDataAsFloatArray();
+        float[] aData = a.getDataAsFloatArray();
+        float[] rowBiasData = rowBias.getDataAsFloatArray();
+        float[] columnScaleData = columnScale.getDataAsFloatArray();
+
+        float[] expectedRowBiasGrad = new float[3];
+        float[] expectedColumnScaleGrad = new float[2];
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 3; j++) {
+                expectedRowBiasGrad[j] += gradient[i * 3 + j] * columnScaleData[i];
+                expectedColumnScaleGrad[i] += gradient[i * 3 + j] * (aData[i * 3 + j] + rowBiasData[j]);
+            }
+        }
+
+        Assert.assertEquals(new Size(1, 3).getDimensions(), rowBias.grad().size().getDimensions());
+        Assert.assertEquals(new Size(2, 1).getDimensions(), columnScale.grad().size().getDimensions());
+        assertArrayEqual(rowBias.grad().getDataAsFloatArray(), expectedRowBiasGrad, 0.0001f);
+        assertArrayEqual(columnScale.grad().getDataAsFloatArray(), expectedColumnScaleGrad, 0.0001f);
+    }
+
+    @Test
+    public void test_inference_mode() {
+        var a = createRandomValue(true, 2, 2);
+        var b = createRandomValue(true, 2, 2);
+
+        float[] inferred;
+        try (InferenceMode inferenceMode = InferenceMode.enable()) {
+            assertTrue(InferenceMode.isEnabled());
+            var c = a.mul(b).add(a).relu();
+            assertFalse(c.requires_grad());
+            inferred = c.getDataAsFloatArray();
+        }
+        assertFalse(InferenceMode.isEnabled());
+
+        var d = a.mul(b).add(a).relu();
+        assertTrue(d.requires_grad());
+        assertArrayEqual(inferred, d.getDataAsFloatArray(), 0.0001f);
+    }
+
+    @Test
+    public void test_captured_graph_replay() {
+        var w = createRandomValue(true, 2, 2);
+        var x = createRandomValue(false, 2, 2);
+        w.getGradNode().setDisableNativeGradient(true);
+
+        CapturedGraph<D> graph = CapturedGraph.capture(List.of(x), () -> {
+            var y = x.mul(w).add(w).relu();
+            y.backward(createOnesValue(false, 2, 2));
+            return List.of(y, w.grad());
+        });
+        assertTrue(graph.getStepCount() > 0);
+
+        var x2 = createRandomValue(false, 2, 2);
+        List<D> replayed = graph.replay(List.of(x2.data().get()));
+
+        var w2 = createGradValue(w.data().get(), true);
+        w2.getGradNode().setDisableNativeGradient(true);
+        var y2 = x2.mul(w2).add(w2).relu();
+        y2.backward(createOnesValue(false, 2, 2));
+
+        assertEquals(y2.data().get(), replayed.get(0));
+        assertEquals(w2.grad().data().get(), replayed.get(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_captured_graph_rejects_output_computed_outside_recorded_operations() {
+        var w = createRandomValue(true, 2, 2);
+        var x = createRandomValue(false, 2, 2);
+        w.getGradNode().setDisableNativeGradient(true);
+
+        CapturedGraph.capture(List.of(x), () -> List.of(x.mul(w), createOnesValue(false, 2, 2)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_captured_graph_rejects_unread_input() {
+        var w = createRandomValue(true, 2, 2);
+        var x = createRandomValue(false, 2, 2);
+        var unused = createRandomValue(false, 2, 2);
+        w.getGradNode().setDisableNativeGradient(true);
+
+        CapturedGraph.capture(List.of(x, unused), () -> List.of(x.mul(w)));
+    }
+
+    @Test
+    public void test_checkpoint() {
+        var a = createRandomValue(true, 2, 2);
+        var b = createRandomValue(true, 2, 2);
+        a.getGradNode().setDisableNativeGradient(true);
+        b.getGradNode().setDisableNativeGradient(true);
+
+        var c = a.checkpoint(x -> x.mul(b).add(x).relu().mul(x));
+        c.backward(createOnesValue(false, 2, 2));
+
+        var a2 = createGradValue(a.data().get(), true);
+        var b2 = createGradValue(b.data().get(), true);
+        a2.getGradNode().setDisableNativeGradient(true);
+        b2.getGradNode().setDisableNativeGradient(true);
+
+        var c2 = a2.mul(b2).add(a2).relu().mul(a2);
+        c2.backward(createOnesValue(false, 2, 2));
+
+        assertEquals(c2.data().get(), c.data().get());
+        assertEquals(a2.grad().data().get(), a.grad().data().get());
+        assertEquals(b2.grad().data().get(), b.grad().data().get());
+    }
+
+    @Test
+    public void test_captured_graph_parallel_replay() {
+        var w1 = createRandomValue(true, 2, 2);
+        var w2 = createRandomValue(true, 2, 2);
+        var x = createRandomValue(false, 2, 2);
+        w1.getGradNode().setDisableNativeGradient(true);
+        w2.getGradNode().setDisableNativeGradient(true);
+
+        CapturedGraph<D> graph = CapturedGraph.capture(List.of(x), () -> {
+            var y = x.mul(w1).relu().add(x.mul(w2).sigmoid());
+            y.backward(createOnesValue(false, 2, 2));
+            return List.of(y, w1.grad(), w2.grad());
+        });
+        assertTrue(graph.getWaveCount() < graph.getStepCount());
+
+        var x2 = createRandomValue(false, 2, 2);
+        List<D> sequential = graph.replay(List.of(x2.data().get()));
+        List<D> parallel = graph.replay(List.of(x2.data().get()), ForkJoinPool.commonPool());
+
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i), parallel.get(i));
+        }
+    }
+
+    @Test
+    public void test_zero_grad() {
+        var a = createRandomValue(true, 2, 2);
+        a.getGradNode().setDisableNativeGradient(true);
+
+        a.mul(2f).backward(createOnesValue(false, 2, 2));
+        assertArrayEqual(new float[] {2, 2, 2, 2}, a.grad().getDataAsFloatArray(), 0.0001f);
+
+        a.zero_grad();
+        assertArrayEqual(new float[4], a.grad().getDataAsFloatArray(), 0.0001f);
+    }
+
+    @Test
+    public void test_elementwise_activation_gradients() {
+        var a = createRandomValue(true, 2, 2);
+        a.getGradNode().setDisableNativeGradient(true);
+        float[] x = a.getDataAsFloatArray();
+
+        var sigmoid = a.sigmoid();
+        sigmoid.backward(createOnesValue(false, 2, 2));
+        float[] expected = new float[x.length];
+        for (int i = 0; i < x.length; i++) {
+            float y = 1f / (1f + (float) Math.exp(-x[i]));
+            expected[i] = y * (1 - y);
+        }
+        assertArrayEqual(expected, a.grad().getDataAsFloatArray(), 0.0001f);
+
+        var b = createGradValue(a.exp().data().get(), true);
+        b.getGradNode().setDisableNativeGradient(true);
+        b.exp().backward(createOnesValue(false, 2, 2));
+        float[] bData = b.getDataAsFloatArray();
+        for (int i = 0; i < bData.length; i++) {
+            expected[i] = (float) Math.exp(bData[i]);
+        }
+        assertArrayEqual(expected, b.grad().getDataAsFloatArray(), 0.001f);
+
+        var c = createGradValue(a.exp().data().get(), true);
+        c.getGradNode().setDisableNativeGradient(true);
+        c.log().backward(createOnesValue(false, 2, 2));
+        float[] cData = c.getDataAsFloatArray();
+        for (int i = 0; i < cData.length; i++) {
+            expected[i] = 1f / cData[i];
+        }
+        assertArrayEqual(expected, c.grad().getDataAsFloatArray(), 0.0001f);
+    }
+
+    @Test
+    public void test_matmul_transpose_flags() {
+        var a = createRandomValue(true, 2, 3);
+        var b = createRandomValue(true, 4, 2);
+        a.getGradNode().setDisableNativeGradient(true);
+        b.getGradNode().setDisableNativeGradient(true);
+
+        var c = a.matmul(b, true, true);
+        c.backward(createOnesValue(false, 3, 4));
+
+        var a2 = createGradValue(a.data().get(), true);
+        var b2 = createGradValue(b.data().get(), true);
+        a2.getGradNode().setDisableNativeGradient(true);
+        b2.getGradNode().setDisableNativeGradient(true);
+
+        var c2 = a2.t().matmul(b2.t());
+        c2.backward(createOnesValue(false, 3, 4));
+
+        assertArrayEqual(c.getDataAsFloatArray(), c2.getDataAsFloatArray(), 0.0001f);
+        assertArrayEqual(a.grad().getDataAsFloatArray(), a2.grad().getDataAsFloatArray(), 0.0001f);
+        assertArrayEqual(b.grad().getDataAsFloatArray(), b2.grad().getDataAsFloatArray(), 0.0001f);
+    }
 }
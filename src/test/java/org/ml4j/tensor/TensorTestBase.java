@@ -316,6 +316,138 @@ public abstract class TensorTestBase<T extends Tensor<T, D>, D> extends TestBase
         }
     }
 
+    @Test
+    public void test_inplace_activations() {
+        var a = createGradValue(new float[] {-1, 2, -3, 4}, 2, 2);
+
+        a.relu_();
+        Assert.assertArrayEquals(new float[] {0, 2, 0, 4}, a.getDataAsFloatArray(), 0.0001f);
+
+        a.neg_();
+        Assert.assertArrayEquals(new float[] {0, -2, 0, -4}, a.getDataAsFloatArray(), 0.0001f);
+
+        a.sigmoid_();
+        Assert.assertArrayEquals(new float[] {0.5f, 0.1192f, 0.5f, 0.0180f}, a.getDataAsFloatArray(), 0.0001f);
+    }
+
+    @Test
+    public void test_expand_and_relu_backward() {
+        var row = createGradValue(new float[] {1, 2}, 1, 2);
+        Assert.assertArrayEquals(new float[] {1, 2, 1, 2}, row.expand(new Size(2, 2)).getDataAsFloatArray(), 0.0001f);
+
+        var scalar = createGradValue(3f, false, new Size());
+        Assert.assertArrayEquals(new float[] {3, 3, 3, 3}, scalar.expand(new Size(2, 2)).getDataAsFloatArray(), 0.0001f);
+
+        var gradient = createGradValue(new float[] {1, 2, 3, 4}, 2, 2);
+        var input = createGradValue(new float[] {-1, 2, -3, 4}, 2, 2);
+        Assert.assertArrayEquals(new float[] {0, 2, 0, 4}, gradient.reluBackward(input).getDataAsFloatArray(), 0.0001f);
+    }
+
+    @Test
+    public void test_mean() {
+        var a = createGradValue(-4f, true, new Size(2, 2)).name_("a");
+
+        if (!isNativeGradientExpected()) {
+            a.getGradNode().setDisableNativeGradient(true);
+        }
+
+        var c = a.mean();
+
+        assertEquals(createData(-4f, new Size()), c.data().get());
+
+        c.backward();
+
+        assertEquals(createData(0.25f, new Size(2, 2)), a.grad(false).data().get());
+    }
+
+    @Test
+    public void test_norm() {
+        var a = createGradValue(3f, true, new Size(2, 2)).name_("a");
+
+        if (!isNativeGradientExpected()) {
+            a.getGradNode().setDisableNativeGradient(true);
+        }
+
+        var c = a.norm();
+
+        assertEquals(createData(6f, new Size()), c.data().get());
+
+        c.backward();
+
+        assertEquals(createData(0.5f, new Size(2, 2)), a.grad(false).data().get());
+    }
+
+    @Test
+    public void test_norm_of_zero_has_zero_gradient() {
+        var a = createGradValue(0f, true, new Size(2, 2)).name_("a");
+        a.getGradNode().setDisableNativeGradient(true);
+
+        var c = a.norm();
+
+        assertEquals(createData(0f, new Size()), c.data().get());
+
+        c.backward();
+
+        assertEquals(createData(0f, new Size(2, 2)), a.grad(false).data().get());
+    }
+
+    @Test
+    public void test_column_and_row_sums() {
+        var a = createGradValue(1f, true, new Size(2, 3)).name_("a");
+
+        if (!isNativeGradientExpected()) {
+            a.getGradNode().setDisableNativeGradient(true);
+        }
+
+        var columnSums = a.columnSums();
+        var rowSums = a.rowSums();
+
+        assertSize(columnSums, new Size(1, 3));
+        assertSize(rowSums, new Size(2, 1));
+        assertEquals(createData(2f, new Size(1, 3)), columnSums.data().get());
+        assertEquals(createData(3f, new Size(2, 1)), rowSums.data().get());
+
+        columnSums.sum().add(rowSums.sum()).backward();
+
+        assertEquals(createData(2f, new Size(2, 3)), a.grad(false).data().get());
+    }
+
+    @Test
+    public void test_fill_() {
+        var a = createGradValue(new float[] {1, 2, 3, 4}, 2, 2);
+
+        a.fill_(7f);
+
+        assertEquals(createData(7f, new Size(2, 2)), a.data().get());
+    }
+
+    @Test
+    public void test_uniform_() {
+        var a = createGradValue(0f, false, new Size(4, 4));
+
+        a.uniform_(-2f, 3f);
+
+        for (float value : a.getDataAsFloatArray()) {
+            Assert.assertTrue(value >= -2f && value <= 3f);
+        }
+    }
+
+    @Test
+    public void test_scalar_inplace_ops() {
+        var a = createGradValue(new float[] {1, 2, 3, 4}, 2, 2);
+
+        a.add_(1);
+        a.mul_(4);
+        a.div_(2);
+        a.sub_(2);
+        Assert.assertArrayEquals(new float[] {2, 4, 6, 8}, a.getDataAsFloatArray(), 0.0001f);
+
+        var b = a.cloneTensor();
+        a.zero_();
+        Assert.assertArrayEquals(new float[] {2, 4, 6, 8}, b.getDataAsFloatArray(), 0.0001f);
+        Assert.assertArrayEquals(new float[4], a.getDataAsFloatArray(), 0.0001f);
+    }
+
     @Test
     public void test_get_row() {
 
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.benchmark;
+
+import org.jvmpy.symbolictensors.Size;
+import org.ml4j.autograd.AutogradValueRegistry;
+import org.ml4j.tensor.Tensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of end-to-end autograd graphs on each backend, timing the forward pass,
+ * backward() and grad() separately so that the cost of the graph bookkeeping can be
+ * compared with the cost of the numeric kernels measured by TensorOperationsBenchmark.
+ *
+ * The graph is a two layer MLP (matmul, broadcasting add of the bias row, relu) reduced to
+ * a scalar loss, optionally slicing half the batch with getTensor before the reduction.
+ *
+ * The model parameter is of the form "batch x input x hidden x output".
+ *
+ * @author Michael Lavelle
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class AutogradBenchmark {
+
+    public enum Graph {
+        MLP, SLICED_MLP
+    }
+
+    @Param({"DJL", "DL4J", "ML4J"})
+    public TensorBackend backend;
+
+    @Param({"true", "false"})
+    public boolean nativeGradient;
+
+    @Param({"MLP", "SLICED_MLP"})
+    public Graph graph;
+
+    @Param({"32x64x64x10", "128x784x256x10"})
+    public String model;
+
+    private Tensor x;
+    private Tensor w1;
+    private Tensor b1;
+    private Tensor w2;
+    private Tensor b2;
+
+    private Tensor loss;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] dims = TensorBackend.parseSize(model).dimensions();
+        int batch = dims[0];
+        int input = dims[1];
+        int hidden = dims[2];
+        int output = dims[3];
+        AutogradValueRegistry registry = AutogradValueRegistry.create(AutogradBenchmark.class.getName());
+        Random random = new Random(42);
+        x = leaf(new Size(batch, input), false, registry, random);
+        w1 = leaf(new Size(input, hidden), true, registry, random);
+        b1 = leaf(new Size(1, hidden), true, registry, random);
+        w2 = leaf(new Size(hidden, output), true, registry, random);
+        b2 = leaf(new Size(1, output), true, registry, random);
+    }
+
+    private Tensor leaf(Size size, boolean requires_grad, AutogradValueRegistry registry, Random random) {
+        Tensor tensor = backend.createRandomTensor(size, requires_grad, registry, random);
+        if (!nativeGradient) {
+            tensor.getGradNode().setDisableNativeGradient(true);
+        }
+        return tensor;
+    }
+
+    private Tensor forwardPass() {
+        Tensor h = (Tensor) ((Tensor) ((Tensor) x.matmul(w1)).add(b1)).relu();
+        Tensor y = (Tensor) ((Tensor) h.matmul(w2)).add(b2);
+        if (graph == Graph.SLICED_MLP) {
+            int half = y.size().dimensions()[0] / 2;
+            y = (Tensor) y.getTensor(new int[] {0, Math.max(half, 1)}, new int[] {-1, -1});
+        }
+        return (Tensor) y.sum();
+    }
+
+    @Benchmark
+    public void forward(Blackhole blackhole) {
+        blackhole.consume(forwardPass());
+    }
+
+    @State(Scope.Thread)
+    public static class ForwardState {
+
+        private Tensor loss;
+
+        @Setup(Level.Invocation)
+        public void setUp(AutogradBenchmark benchmark) {
+            loss = benchmark.forwardPass();
+        }
+    }
+
+    @Benchmark
+    public void backward(ForwardState state, Blackhole blackhole) {
+        state.loss.backward();
+        blackhole.consume(state.loss);
+    }
+
+    @State(Scope.Thread)
+    public static class BackwardState {
+
+        @Setup(Level.Invocation)
+        public void setUp(AutogradBenchmark benchmark) {
+            benchmark.loss = benchmark.forwardPass();
+            benchmark.loss.backward();
+        }
+    }
+
+    @Benchmark
+    public void grad(BackwardState state, Blackhole blackhole) {
+        blackhole.consume(w1.grad());
+        blackhole.consume(b1.grad());
+        blackhole.consume(w2.grad());
+        blackhole.consume(b2.grad());
+    }
+}
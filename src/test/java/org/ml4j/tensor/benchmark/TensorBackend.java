@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.benchmark;
+
+import org.jvmpy.symbolictensors.Size;
+import org.ml4j.autograd.AutogradValueRegistry;
+import org.ml4j.autograd.impl.AutogradValueProperties;
+import org.ml4j.tensor.Tensor;
+import org.ml4j.tensor.TensorOperations;
+import org.ml4j.tensor.djl.DJLTensorFactory;
+import org.ml4j.tensor.djl.DJLTensorImpl;
+import org.ml4j.tensor.djl.DJLTensorOperations;
+import org.ml4j.tensor.djl.DJLTensorOperationsImpl;
+import org.ml4j.tensor.dl4j.DL4JTensorImpl;
+import org.ml4j.tensor.dl4j.DL4JTensorOperations;
+import org.ml4j.tensor.dl4j.DL4JTensorOperationsImpl;
+import org.ml4j.tensor.ml4j.ML4JTensorFactory;
+import org.ml4j.tensor.ml4j.ML4JTensorImpl;
+import org.ml4j.tensor.ml4j.ML4JTensorOperations;
+import org.ml4j.tensor.ml4j.ML4JTensorOperationsImpl;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Random;
+
+/**
+ * The backends the benchmarks are parameterised over, each able to create both the
+ * D-level TensorOperations and the autograd Tensor for a given row-by-row float array.
+ *
+ * @author Michael Lavelle
+ */
+public enum TensorBackend {
+
+    DJL {
+        @Override
+        public TensorOperations<?> create(float[] data, Size size) {
+            return new DJLTensorOperationsImpl(DJLTensorFactory.getManager().create(data, DJLTensorFactory.getShape(size)), false);
+        }
+
+        @Override
+        public Tensor<?, ?> createTensor(float[] data, Size size, boolean requires_grad, AutogradValueRegistry registry) {
+            DJLTensorOperations ops = (DJLTensorOperations) create(data, size);
+            return new DJLTensorImpl(() -> ops, new AutogradValueProperties<Size>().setRegistry(registry).setContext(size).setRequires_grad(requires_grad));
+        }
+
+        @Override
+        public void release(Object result) {
+            // Results are attached to the static base manager, so free them eagerly.
+            if (result instanceof DJLTensorOperations) {
+                ((DJLTensorOperations) result).getNDArray().close();
+            }
+        }
+    },
+    DL4J {
+        @Override
+        public TensorOperations<?> create(float[] data, Size size) {
+            return new DL4JTensorOperationsImpl(Nd4j.create(data, size.dimensions()));
+        }
+
+        @Override
+        public Tensor<?, ?> createTensor(float[] data, Size size, boolean requires_grad, AutogradValueRegistry registry) {
+            DL4JTensorOperations ops = (DL4JTensorOperations) create(data, size);
+            return new DL4JTensorImpl(() -> ops, new AutogradValueProperties<Size>().setRegistry(registry).setContext(size).setRequires_grad(requires_grad));
+        }
+    },
+    ML4J {
+        @Override
+        public TensorOperations<?> create(float[] data, Size size) {
+            return new ML4JTensorOperationsImpl(ML4JTensorFactory.DEFAULT_DIRECTED_COMPONENTS_CONTEXT,
+                    ML4JTensorFactory.DEFAULT_MATRIX_FACTORY.createMatrixFromRowsByRowsArray(size.dimensions()[0], size.dimensions()[1], data), size);
+        }
+
+        @Override
+        public Tensor<?, ?> createTensor(float[] data, Size size, boolean requires_grad, AutogradValueRegistry registry) {
+            ML4JTensorOperations ops = (ML4JTensorOperations) create(data, size);
+            return new ML4JTensorImpl(ML4JTensorFactory.DEFAULT_DIRECTED_COMPONENTS_CONTEXT, () -> ops, new AutogradValueProperties<Size>().setRegistry(registry).setContext(size).setRequires_grad(requires_grad));
+        }
+    };
+
+    public abstract TensorOperations<?> create(float[] data, Size size);
+
+    public abstract Tensor<?, ?> createTensor(float[] data, Size size, boolean requires_grad, AutogradValueRegistry registry);
+
+    public TensorOperations<?> createRandom(Size size, Random random) {
+        return create(randomData(size, random), size);
+    }
+
+    public Tensor<?, ?> createRandomTensor(Size size, boolean requires_grad, AutogradValueRegistry registry, Random random) {
+        return createTensor(randomData(size, random), size, requires_grad, registry);
+    }
+
+    private static float[] randomData(Size size, Random random) {
+        float[] data = new float[size.numel()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (float) random.nextGaussian();
+        }
+        return data;
+    }
+
+    public void release(Object result) {
+        // No-op by default - the array is reclaimed by the garbage collector.
+    }
+
+    /**
+     * Parses sizes of the form "rows x columns", eg. "1024x1024".
+     */
+    public static Size parseSize(String size) {
+        String[] dims = size.split("x");
+        int[] dimensions = new int[dims.length];
+        for (int i = 0; i < dims.length; i++) {
+            dimensions[i] = Integer.parseInt(dims[i].trim());
+        }
+        return new Size(dimensions);
+    }
+}
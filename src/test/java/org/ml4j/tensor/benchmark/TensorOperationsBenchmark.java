@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.benchmark;
+
+import org.jvmpy.symbolictensors.Size;
+import org.ml4j.tensor.TensorOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the D-level TensorOperations on each backend, across tensor
+ * sizes from a single element up to 16M elements.
+ *
+ * Combinations a backend does not support fail with UnsupportedOperationException,
+ * which JMH reports as an error for that combination only.
+ *
+ * @author Michael Lavelle
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class TensorOperationsBenchmark {
+
+    @Param({"DJL", "DL4J", "ML4J"})
+    public TensorBackend backend;
+
+    @Param({"1x1", "64x64", "256x256", "1024x1024", "4096x4096"})
+    public String size;
+
+    private TensorOperations left;
+    private TensorOperations right;
+    private TensorOperations row;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Size s = TensorBackend.parseSize(size);
+        Random random = new Random(42);
+        left = backend.createRandom(s, random);
+        right = backend.createRandom(s, random);
+        row = backend.createRandom(new Size(1, s.dimensions()[1]), random);
+    }
+
+    private void consume(Object result, Blackhole blackhole) {
+        blackhole.consume(result);
+        backend.release(result);
+    }
+
+    @Benchmark
+    public void add(Blackhole blackhole) {
+        consume(left.add(right), blackhole);
+    }
+
+    @Benchmark
+    public void mul(Blackhole blackhole) {
+        consume(left.mul(right), blackhole);
+    }
+
+    @Benchmark
+    public void matmul(Blackhole blackhole) {
+        consume(left.matmul(right), blackhole);
+    }
+
+    @Benchmark
+    public void sum(Blackhole blackhole) {
+        consume(left.sum(), blackhole);
+    }
+
+    @Benchmark
+    public void relu(Blackhole blackhole) {
+        consume(left.relu(), blackhole);
+    }
+
+    @Benchmark
+    public void sigmoid(Blackhole blackhole) {
+        consume(left.sigmoid(), blackhole);
+    }
+
+    @Benchmark
+    public void t(Blackhole blackhole) {
+        consume(left.t(), blackhole);
+    }
+
+    @Benchmark
+    public void getTensor(Blackhole blackhole) {
+        consume(left.getTensor(0, -1), blackhole);
+    }
+
+    @Benchmark
+    public void putTensor(Blackhole blackhole) {
+        left.putTensor(row, 0, -1);
+        blackhole.consume(left);
+    }
+}
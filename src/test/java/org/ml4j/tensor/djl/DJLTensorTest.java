@@ -16,18 +16,25 @@ package org.ml4j.tensor.djl;
 
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.types.Shape;
+import ai.djl.pytorch.jni.JniUtils;
+import ai.djl.util.NativeResource;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.jvmpy.symbolictensors.Size;
 import org.ml4j.autograd.impl.AutogradValueProperties;
 import org.ml4j.autograd.operators.DifferentiableUnaryOperator;
+import org.ml4j.tensor.CapturedGraph;
 import org.ml4j.tensor.TensorTestBase;
+import org.ml4j.tensor.dl4j.DL4JTensorOperations;
+import org.ml4j.tensor.dl4j.DL4JTensorOperationsImpl;
 import org.ml4j.tensor.ml4j.ML4JTensor;
 import org.ml4j.tensor.ml4j.ML4JTensorFactory;
 import org.ml4j.tensor.ml4j.ML4JTensorImpl;
 import org.ml4j.tensor.ml4j.ML4JTensorOperations;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.function.UnaryOperator;
 
@@ -119,6 +126,205 @@ public class DJLTensorTest extends TensorTestBase<DJLTensor, DJLTensorOperations
 		Assert.assertFalse(a.grad().isNativeGradient());
 	}
 
+	@Test
+	public void testDL4JConversion() {
+		float[] data = new float[] {1, 2, 3, 4, 5, 6};
+		DJLTensorOperations ops = DJLTensorOperationsImpl.allocated(DJLTensorFactory.getManager().create(data, new Shape(2, 3)));
+		DJLTensorOperations transposed = ops.t();
+		Assert.assertTrue(ops.isContiguous());
+		Assert.assertFalse(transposed.isContiguous());
+
+		// Arrays passed in from outside may be strided views, so are never assumed to be dense.
+		DJLTensorOperations external = new DJLTensorOperationsImpl(ops.getNDArray().transpose(), false);
+		Assert.assertFalse(external.isContiguous());
+		Assert.assertArrayEquals(new float[] {1, 4, 2, 5, 3, 6}, new DL4JTensorOperationsImpl(external).getDataAsFloatArray(), 0f);
+
+		DL4JTensorOperations converted = new DL4JTensorOperationsImpl(ops);
+		Assert.assertArrayEquals(data, converted.getDataAsFloatArray(), 0f);
+		Assert.assertArrayEquals(new float[] {1, 4, 2, 5, 3, 6}, new DL4JTensorOperationsImpl(transposed).getDataAsFloatArray(), 0f);
+
+		DJLTensorOperations roundTrip = new DJLTensorOperationsImpl(converted);
+		assertSize(new DJLTensorImpl(() -> roundTrip, new AutogradValueProperties<Size>().setRegistry(registry).setContext(roundTrip.size())), new Size(2, 3));
+		Assert.assertArrayEquals(data, roundTrip.getDataAsFloatArray(), 0f);
+	}
+
+	@Test
+	public void testDL4JConversionInsideScopeSurvivesScope() {
+		var a = createGradValue(2f, false, new Size(2, 2));
+		DL4JTensorOperations converted;
+		try (DJLTensorScope scope = DJLTensorScope.open()) {
+			converted = new DL4JTensorOperationsImpl(a.mul(a).data().get());
+		}
+		Assert.assertArrayEquals(new float[] {4, 4, 4, 4}, converted.getDataAsFloatArray(), 0f);
+	}
+
+	@Test
+	public void testWrapperDataIsConvertedOncePerVersion() {
+		ML4JTensor ml4jTensor = new ML4JTensorImpl(ML4JTensorFactory.DEFAULT_DIRECTED_COMPONENTS_CONTEXT, 2f, new AutogradValueProperties<Size>().setRegistry(registry).setContext(new Size(2, 2)));
+		DJLTensor wrapper = new DJLFromML4JTensorWrapperImpl(ML4JTensorFactory.DEFAULT_DIRECTED_COMPONENTS_CONTEXT, ml4jTensor);
+
+		DJLTensorOperations first = wrapper.data().get();
+		Assert.assertSame(first, wrapper.data().get());
+
+		ml4jTensor.add_(1f);
+
+		DJLTensorOperations second = wrapper.data().get();
+		Assert.assertNotSame(first, second);
+		assertEquals(createData(3f, new Size(2, 2)), second);
+	}
+
+	@Test
+	public void testScopeReleasesIntermediatesAndKeepsDetachedValues() {
+		var a = createGradValue(2f, false, new Size(2, 2));
+		DJLTensor intermediate;
+		DJLTensor kept;
+		try (DJLTensorScope scope = DJLTensorScope.open()) {
+			Assert.assertSame(scope.getManager(), DJLTensorFactory.getManager());
+			intermediate = a.mul(a);
+			Assert.assertSame(scope.getManager(), intermediate.getNDArray().getManager());
+			kept = scope.keep(a.add(a));
+		}
+		Assert.assertSame(DJLTensorFactory.getManager(), kept.getNDArray().getManager());
+		Assert.assertNotSame(DJLTensorFactory.getManager(), intermediate.getNDArray().getManager());
+		Assert.assertTrue(((NativeResource<?>) intermediate.getNDArray()).isReleased());
+		Assert.assertFalse(((NativeResource<?>) kept.getNDArray()).isReleased());
+		Assert.assertArrayEquals(new float[] {4, 4, 4, 4}, kept.getNDArray().toFloatArray(), 0f);
+		assertEquals(createData(4f, new Size(2, 2)), kept.data().get());
+	}
+
+	@Test
+	public void testInPlaceInitialisationWritesIntoExistingArray() {
+		var a = createGradValue(2f, false, new Size(2, 2));
+		var array = a.getNDArray();
+		a.zero_();
+		Assert.assertSame(array, a.getNDArray());
+		assertEquals(createData(0f, new Size(2, 2)), a.data().get());
+		a.normal_(0f, 1f);
+		a.uniform_(0f, 1f);
+		Assert.assertSame(array, a.getNDArray());
+	}
+
+	@Test
+	public void testInPlaceInitialisationOfNativeGradientParameter() {
+		var a = createGradValue(2f, true, new Size(2, 2));
+		var array = a.getNDArray();
+		a.normal_(0f, 1f);
+		a.uniform_(0f, 1f);
+		a.zero_();
+		Assert.assertSame(array, a.getNDArray());
+		Assert.assertTrue(JniUtils.isGradMode());
+		assertEquals(createData(0f, new Size(2, 2)), a.data().get());
+
+		a.mul(3f).backward(createGradValue(1f, false, new Size(2, 2)));
+		Assert.assertTrue(a.grad().isNativeGradient());
+		assertEquals(createData(3f, new Size(2, 2)), a.grad().data().get());
+	}
+
+	@Test
+	public void testCheckpointWithNativeGradients() {
+		var a = createGradValue(2f, true, new Size(2, 2));
+		var b = createGradValue(3f, true, new Size(2, 2));
+
+		var c = a.checkpoint(x -> x.mul(b).add(x).relu().mul(x));
+		c.backward(createGradValue(1f, false, new Size(2, 2)));
+
+		var a2 = createGradValue(2f, true, new Size(2, 2));
+		var b2 = createGradValue(3f, true, new Size(2, 2));
+
+		var c2 = a2.mul(b2).add(a2).relu().mul(a2);
+		c2.backward(createGradValue(1f, false, new Size(2, 2)));
+
+		assertEquals(createData(16f, new Size(2, 2)), c.data().get());
+		assertEquals(c2.data().get(), c.data().get());
+		assertEquals(createData(16f, new Size(2, 2)), a.grad().data().get());
+		assertEquals(a2.grad().data().get(), a.grad().data().get());
+		assertEquals(createData(4f, new Size(2, 2)), b.grad().data().get());
+		assertEquals(b2.grad().data().get(), b.grad().data().get());
+	}
+
+	@Test
+	public void testNestedCheckpointKeepsNativeGradientsSuspended() {
+		var a = createGradValue(2f, true, new Size(2, 2));
+		var b = createGradValue(3f, true, new Size(2, 2));
+		boolean[] gradModeAfterInner = new boolean[1];
+
+		var c = a.checkpoint(x -> {
+			var y = x.mul(b).checkpoint(z -> z.relu());
+			gradModeAfterInner[0] = JniUtils.isGradMode();
+			return y.mul(x);
+		});
+		Assert.assertFalse(gradModeAfterInner[0]);
+		Assert.assertTrue(JniUtils.isGradMode());
+		c.backward(createGradValue(1f, false, new Size(2, 2)));
+
+		var a2 = createGradValue(2f, true, new Size(2, 2));
+		var b2 = createGradValue(3f, true, new Size(2, 2));
+		a2.mul(b2).relu().mul(a2).backward(createGradValue(1f, false, new Size(2, 2)));
+
+		assertEquals(createData(12f, new Size(2, 2)), c.data().get());
+		assertEquals(a2.grad().data().get(), a.grad().data().get());
+		assertEquals(b2.grad().data().get(), b.grad().data().get());
+	}
+
+	@Test
+	public void testMatmulGradientsMatchWithAndWithoutNativeGradients() {
+		var a = createGradValue(2f, true, new Size(2, 3));
+		var b = createGradValue(3f, true, new Size(3, 2));
+		a.matmul(b).backward(createGradValue(1f, false, new Size(2, 2)));
+
+		var a2 = createGradValue(2f, true, new Size(2, 3));
+		var b2 = createGradValue(3f, true, new Size(3, 2));
+		a2.getGradNode().setDisableNativeGradient(true);
+		b2.getGradNode().setDisableNativeGradient(true);
+		a2.matmul(b2).backward(createGradValue(1f, false, new Size(2, 2)));
+
+		Assert.assertTrue(a.grad().isNativeGradient());
+		Assert.assertFalse(a2.grad().isNativeGradient());
+		assertEquals(createData(6f, new Size(2, 3)), a.grad().data().get());
+		assertEquals(a2.grad().data().get(), a.grad().data().get());
+		assertEquals(createData(4f, new Size(3, 2)), b.grad().data().get());
+		assertEquals(b2.grad().data().get(), b.grad().data().get());
+	}
+
+	@Test
+	public void testAllZeroNativeGradientIsPresent() {
+		var a = createGradValue(-1f, true, new Size(2, 2));
+		a.relu().backward(createGradValue(1f, false, new Size(2, 2)));
+
+		Assert.assertTrue(a.grad().isNativeGradient());
+		assertEquals(createData(0f, new Size(2, 2)), a.grad().data().get());
+	}
+
+	@Test
+	public void testConcurrentReplayRunsOutsideTheCallersScope() {
+		var w1 = createGradValue(2f, false, new Size(2, 2));
+		var w2 = createGradValue(3f, false, new Size(2, 2));
+		var x = createGradValue(1f, false, new Size(2, 2));
+		CapturedGraph<DJLTensorOperations> graph = CapturedGraph.capture(List.of(x), () -> List.of(x.mul(w1), x.mul(w2)));
+		Assert.assertEquals(1, graph.getWaveCount());
+
+		var x2 = createGradValue(2f, false, new Size(2, 2));
+		ForkJoinPool pool = new ForkJoinPool(2);
+		List<DJLTensorOperations> sequential;
+		List<DJLTensorOperations> parallel;
+		try (DJLTensorScope scope = DJLTensorScope.open()) {
+			sequential = graph.replay(List.of(x2.data().get()));
+			parallel = graph.replay(List.of(x2.data().get()), pool);
+			for (int i = 0; i < 2; i++) {
+				Assert.assertSame(scope.getManager(), sequential.get(i).getNDArray().getManager());
+				Assert.assertNotSame(scope.getManager(), parallel.get(i).getNDArray().getManager());
+			}
+		} finally {
+			pool.shutdown();
+		}
+		for (int i = 0; i < 2; i++) {
+			Assert.assertTrue(((NativeResource<?>) sequential.get(i).getNDArray()).isReleased());
+			Assert.assertFalse(((NativeResource<?>) parallel.get(i).getNDArray()).isReleased());
+		}
+		assertEquals(createData(4f, new Size(2, 2)), parallel.get(0));
+		assertEquals(createData(6f, new Size(2, 2)), parallel.get(1));
+	}
+
 	@Override
 	protected void assertSize(DJLTensor tensor, Size s) {
 		Assert.assertEquals(tensor.size().dimensions().length, s.dimensions().length);
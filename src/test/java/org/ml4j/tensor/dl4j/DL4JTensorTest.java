@@ -15,11 +15,14 @@
 package org.ml4j.tensor.dl4j;
 
 import org.junit.Assert;
+import org.junit.Test;
 import org.jvmpy.symbolictensors.Size;
 import org.ml4j.autograd.impl.AutogradValueProperties;
 import org.ml4j.tensor.TensorTestBase;
 import org.ml4j.tensor.djl.DJLTensorOperations;
+import org.ml4j.tensor.djl.DJLTensorOperationsImpl;
 import org.ml4j.tensor.ml4j.ML4JTensorOperations;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.factory.Nd4j;
 
 public class DL4JTensorTest extends TensorTestBase<DL4JTensor, DL4JTensorOperations> {
@@ -199,6 +202,65 @@ public class DL4JTensorTest extends TensorTestBase<DL4JTensor, DL4JTensorOperati
 		return false;
 	}
 
+	@Test
+	public void testScopeAllocatesInWorkspaceAndKeepsDetachedValues() {
+		var a = createGradValue(2f, false, new Size(2, 2));
+		DL4JTensor intermediate;
+		DL4JTensor kept;
+		try (DL4JTensorScope scope = DL4JTensorScope.open()) {
+			intermediate = a.mul(a);
+			Assert.assertTrue(intermediate.getNDArray().isAttached());
+			kept = scope.keep(a.add(a));
+		}
+		Assert.assertFalse(kept.getNDArray().isAttached());
+		Assert.assertFalse(a.getNDArray().isAttached());
+		assertEquals(createData(4f, new Size(2, 2)), kept.data().get());
+	}
+
+	@Test
+	public void testDJLConversionInsideScopeDoesNotShareWorkspaceMemory() {
+		var a = createGradValue(2f, false, new Size(2, 2));
+		DJLTensorOperations converted;
+		try (DL4JTensorScope scope = DL4JTensorScope.open()) {
+			converted = new DJLTensorOperationsImpl(a.mul(a).data().get());
+		}
+		try (DL4JTensorScope scope = DL4JTensorScope.open()) {
+			a.add(a).add(a);
+		}
+		Assert.assertArrayEquals(new float[] {4, 4, 4, 4}, converted.getNDArray().toFloatArray(), 0f);
+	}
+
+	@Test
+	public void testKeepInvalidatesConvertedCopies() {
+		var a = createGradValue(2f, false, new Size(2, 2));
+		try (DL4JTensorScope scope = DL4JTensorScope.open()) {
+			var intermediate = a.mul(a);
+			int version = intermediate.version();
+			scope.keep(intermediate);
+			Assert.assertNotEquals(version, intermediate.version());
+		}
+	}
+
+	@Test
+	public void testFullReductionsAreScalarArrays() {
+		var data = new DL4JTensorOperationsImpl(Nd4j.create(new float[] {3, 4, 0, 0}, new int[] {2, 2}));
+		DL4JTensorOperations[] reductions = {data.sum(), data.sumToSize(new Size()), data.mean(), data.norm()};
+		float[] expected = {7, 7, 1.75f, 5};
+		for (int i = 0; i < reductions.length; i++) {
+			Assert.assertEquals(0, reductions[i].getNDArray().rank());
+			Assert.assertEquals(expected[i], reductions[i].getNDArray().getFloat(0), 0.0001f);
+		}
+	}
+
+	@Test
+	public void testComparisonsProduceBooleanMasks() {
+		DL4JTensorOperations data = new DL4JTensorOperationsImpl(Nd4j.create(new float[] {-1f, 0f, 2f, 3f}, 2, 2));
+		DL4JTensorOperations mask = data.gt(0f);
+		Assert.assertEquals(DataType.BOOL, mask.getNDArray().dataType());
+		Assert.assertArrayEquals(new float[] {0f, 0f, 2f, 3f}, mask.mul(data).getDataAsFloatArray(), 0f);
+		Assert.assertArrayEquals(new float[] {0f, 1f, 1f, 1f}, data.gte(0f).getDataAsFloatArray(), 0f);
+	}
+
 	@Override
 	protected void assertSize(DL4JTensor tensor, Size s) {
 		Assert.assertEquals(tensor.size().dimensions().length, s.dimensions().length);
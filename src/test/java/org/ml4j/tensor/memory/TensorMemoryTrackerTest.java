@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.memory;
+
+import ai.djl.ndarray.types.Shape;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.jvmpy.symbolictensors.Size;
+import org.ml4j.tensor.TensorOperations;
+import org.ml4j.tensor.djl.DJLTensorOperationsImpl;
+import org.ml4j.tensor.dl4j.DL4JTensorOperationsImpl;
+import org.ml4j.tensor.ml4j.ML4JTensorFactory;
+import org.ml4j.tensor.ml4j.ML4JTensorOperationsImpl;
+
+import java.util.function.Supplier;
+
+public class TensorMemoryTrackerTest {
+
+    private boolean enabled;
+
+    @Before
+    public void setUp() {
+        this.enabled = TensorMemoryTracker.isEnabled();
+        TensorMemoryTracker.setEnabled(true);
+        TensorMemoryTracker.reset();
+    }
+
+    @After
+    public void tearDown() {
+        TensorMemoryTracker.setEnabled(enabled);
+        TensorMemoryTracker.setStackSampling(0);
+        TensorMemoryTracker.reset();
+    }
+
+    @Test
+    public void testLiveTensorsAndBytes() {
+        Object first = new Object();
+        Object second = new Object();
+        TrackedAllocation firstAllocation = TensorMemoryTracker.track(first, "test", 16, () -> false);
+        TensorMemoryTracker.track(second, "test", 32, () -> false);
+
+        TensorMemorySnapshot.Stats stats = TensorMemoryTracker.snapshot().getByBackend().get("test");
+        Assert.assertEquals(2, stats.getLiveTensors());
+        Assert.assertEquals(48, stats.getLiveBytes());
+
+        firstAllocation.release();
+        firstAllocation.release();
+
+        stats = TensorMemoryTracker.snapshot().getByBackend().get("test");
+        Assert.assertEquals(1, stats.getLiveTensors());
+        Assert.assertEquals(32, stats.getLiveBytes());
+        Assert.assertEquals(2, stats.getAllocatedTensors());
+        Assert.assertEquals(0, stats.getUnclosedTensors());
+    }
+
+    @Test
+    public void testUnclosedTensorsAreReportedWithTheirCreationSite() throws InterruptedException {
+        TensorMemoryTracker.setStackSampling(1);
+        TensorMemoryTracker.track(new Object(), "test", 16, () -> false);
+        TensorMemoryTracker.track(new Object(), "test", 16, () -> true);
+
+        for (int i = 0; i < 50 && TensorMemoryTracker.snapshot().getByBackend().get("test").getLiveTensors() > 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        TensorMemorySnapshot snapshot = TensorMemoryTracker.snapshot();
+        Assert.assertEquals(0, snapshot.getByBackend().get("test").getLiveTensors());
+        Assert.assertEquals(1, snapshot.getByBackend().get("test").getUnclosedTensors());
+        Assert.assertEquals(1, snapshot.getUnclosedBySite().size());
+        Assert.assertTrue(snapshot.getUnclosedBySite().keySet().iterator().next().contains(TensorMemoryTrackerTest.class.getName()));
+    }
+
+    @Test
+    public void testClosedDJLTensorIsReleased() throws InterruptedException {
+        assertClosedTensorIsReleased(TensorMemoryTracker.DJL, () -> new DJLTensorOperationsImpl(new Shape(2, 2), 1f, false));
+    }
+
+    @Test
+    public void testClosedDL4JTensorIsReleased() throws InterruptedException {
+        assertClosedTensorIsReleased(TensorMemoryTracker.DL4J, () -> new DL4JTensorOperationsImpl(new Size(2, 2), 1f));
+    }
+
+    @Test
+    public void testClosedML4JTensorIsReleased() throws InterruptedException {
+        assertClosedTensorIsReleased(TensorMemoryTracker.ML4J, () -> new ML4JTensorOperationsImpl(ML4JTensorFactory.DEFAULT_DIRECTED_COMPONENTS_CONTEXT, 1f, new Size(2, 2)));
+    }
+
+    private void assertClosedTensorIsReleased(String backend, Supplier<TensorOperations<?>> tensor) throws InterruptedException {
+        tensor.get().close();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        TensorMemorySnapshot.Stats stats = TensorMemoryTracker.snapshot().getByBackend().get(backend);
+        Assert.assertEquals(1, stats.getAllocatedTensors());
+        Assert.assertEquals(0, stats.getLiveTensors());
+        Assert.assertEquals(0, stats.getUnclosedTensors());
+    }
+
+    @Test
+    public void testDisabledTrackingReturnsNoAllocation() {
+        TensorMemoryTracker.setEnabled(false);
+        Assert.assertNull(TensorMemoryTracker.track(new Object(), "test", 16, () -> false));
+        Assert.assertTrue(TensorMemoryTracker.snapshot().getByBackend().isEmpty());
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.ml4j.tensor.ml4j;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks the selected ML4JKernels (vectorised when available) against the scalar implementation,
+ * using lengths which are not a multiple of any vector species so the tails are exercised.  When
+ * jdk.incubator.vector is resolved, as under the jdk16 profile, the vectorised kernels must have been
+ * selected, so that the comparisons are not scalar against scalar.
+ *
+ * @author Michael Lavelle
+ */
+public class ML4JKernelsTest {
+
+    private static final int ROWS = 7;
+    private static final int COLUMNS = 37;
+
+    private final ML4JKernels kernels = ML4JKernels.INSTANCE;
+    private final ML4JKernels scalar = new ScalarML4JKernels();
+
+    private final float[] first = random(1);
+    private final float[] second = random(2);
+
+    @Test
+    public void testVectorKernelsAreSelectedWhenAvailable() {
+        Assume.assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        Assume.assumeFalse("scalar".equals(System.getProperty(ML4JKernels.KERNELS_PROPERTY)));
+        Assert.assertEquals(ScalarML4JKernels.class.getPackageName() + ".VectorML4JKernels", kernels.getClass().getName());
+    }
+
+    @Test
+    public void testUnaryKernels() {
+        assertUnary(ML4JKernels::relu);
+        assertUnary(ML4JKernels::sigmoid);
+        assertUnary(ML4JKernels::neg);
+        assertUnary(ML4JKernels::exp);
+        assertUnary((k, src, dst) -> {
+            k.exp(src, dst);
+            k.log(dst, dst);
+        });
+        assertUnary((k, src, dst) -> k.gt(src, dst, 0.25f));
+        assertUnary((k, src, dst) -> k.gte(src, dst, 0.25f));
+    }
+
+    @Test
+    public void testBinaryKernels() {
+        assertBinary(ML4JKernels::add);
+        assertBinary(ML4JKernels::sub);
+        assertBinary(ML4JKernels::mul);
+        assertBinary(ML4JKernels::div);
+        assertBinary(ML4JKernels::reluBackward);
+        assertBinary(ML4JKernels::sigmoidBackward);
+    }
+
+    @Test
+    public void testInPlaceKernel() {
+        float[] expected = new float[first.length];
+        scalar.relu(first, expected);
+        float[] data = first.clone();
+        kernels.relu(data, data);
+        Assert.assertArrayEquals(expected, data, 0f);
+    }
+
+    @Test
+    public void testReductions() {
+        Assert.assertEquals(scalar.sum(first), kernels.sum(first), 0.001f);
+        Assert.assertEquals(scalar.sumOfSquares(first), kernels.sumOfSquares(first), 0.001f);
+
+        float[] expectedColumnSums = new float[COLUMNS];
+        float[] columnSums = new float[COLUMNS];
+        scalar.columnSums(first, ROWS, COLUMNS, expectedColumnSums);
+        kernels.columnSums(first, ROWS, COLUMNS, columnSums);
+        Assert.assertArrayEquals(expectedColumnSums, columnSums, 0.0001f);
+
+        float[] expectedRowSums = new float[ROWS];
+        float[] rowSums = new float[ROWS];
+        scalar.rowSums(first, ROWS, COLUMNS, expectedRowSums);
+        kernels.rowSums(first, ROWS, COLUMNS, rowSums);
+        Assert.assertArrayEquals(expectedRowSums, rowSums, 0.0001f);
+    }
+
+    private void assertUnary(UnaryKernel kernel) {
+        float[] expected = new float[first.length];
+        float[] actual = new float[first.length];
+        kernel.apply(scalar, first, expected);
+        kernel.apply(kernels, first, actual);
+        Assert.assertArrayEquals(expected, actual, 0.00001f);
+    }
+
+    private void assertBinary(BinaryKernel kernel) {
+        float[] expected = new float[first.length];
+        float[] actual = new float[first.length];
+        kernel.apply(scalar, first, second, expected);
+        kernel.apply(kernels, first, second, actual);
+        Assert.assertArrayEquals(expected, actual, 0.00001f);
+    }
+
+    private static float[] random(long seed) {
+        Random random = new Random(seed);
+        float[] data = new float[ROWS * COLUMNS];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextFloat() * 2 - 1;
+        }
+        return data;
+    }
+
+    private interface UnaryKernel {
+        void apply(ML4JKernels kernels, float[] src, float[] dst);
+    }
+
+    private interface BinaryKernel {
+        void apply(ML4JKernels kernels, float[] first, float[] second, float[] dst);
+    }
+}
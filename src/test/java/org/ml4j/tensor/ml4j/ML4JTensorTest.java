@@ -31,6 +31,28 @@ public class ML4JTensorTest extends TensorTestBase<ML4JTensor, ML4JTensorOperati
 
 	private static DirectedComponentsContext context =  new DirectedComponentsContextImpl(matrixFactory, true);
 
+	@Test
+	public void testOutOfPlaceKernelsLeaveInputUnchanged() {
+		Matrix matrix = matrixFactory.createMatrixFromRowsByRowsArray(2, 2, new float[] {-1, 2, -3, 4});
+		ML4JTensorOperations input = new ML4JTensorOperationsImpl(context, matrix, new Size(2, 2));
+
+		Assert.assertArrayEquals(new float[] {0, 2, 0, 4}, input.relu().getDataAsFloatArray(), 0f);
+		Assert.assertArrayEquals(new float[] {-1, 2, -3, 4}, matrix.getRowByRowArray(), 0f);
+	}
+
+	@Test
+	public void testInPlaceKernelsUpdateSharedMatrix() {
+		Matrix matrix = matrixFactory.createMatrixFromRowsByRowsArray(2, 2, new float[] {-1, 2, -3, 4});
+		ML4JTensorOperations first = new ML4JTensorOperationsImpl(context, matrix, new Size(2, 2));
+		ML4JTensorOperations second = new ML4JTensorOperationsImpl(context, matrix, new Size(2, 2));
+
+		first.relu_();
+
+		Assert.assertSame(matrix, first.getMatrix());
+		Assert.assertArrayEquals(new float[] {0, 2, 0, 4}, matrix.getRowByRowArray(), 0f);
+		Assert.assertArrayEquals(new float[] {0, 2, 0, 4}, second.getDataAsFloatArray(), 0f);
+	}
+
 	@Test
 	public void switchTest() {
 